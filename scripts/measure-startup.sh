@@ -0,0 +1,58 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request and resident memory for each startup variant.
+#
+#   mvn -Pcds package            # jar + target/url-shortener.jsa
+#   mvn -Pnative package         # target/url-shortener (GraalVM JDK required)
+#   DATABASE_URL=... scripts/measure-startup.sh [jar|cds|native ...]
+#
+# The server must be able to reach its database; /health answers 503 while the cache
+# warms, so "first request" is the first HTTP response of any status.
+set -euo pipefail
+
+PORT="${PORT:-18080}"
+JAR="target/url-shortener-1.0.0.jar"
+JSA="target/url-shortener.jsa"
+NATIVE="target/url-shortener"
+VARIANTS=("$@")
+[ ${#VARIANTS[@]} -eq 0 ] && VARIANTS=(jar cds native)
+
+now_ms() { date +%s%3N; }
+
+measure() {
+  local variant="$1"; shift
+  local start pid first rss
+  start=$(now_ms)
+  "$@" --port "$PORT" --host 127.0.0.1 >"target/startup-$variant.log" 2>&1 &
+  pid=$!
+
+  until curl -s -o /dev/null "http://127.0.0.1:$PORT/health"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "$variant: process exited, see target/startup-$variant.log" >&2
+      return 1
+    fi
+    sleep 0.01
+  done
+  first=$(( $(now_ms) - start ))
+
+  # Let the warm-up finish before sampling memory so the numbers are comparable.
+  for _ in $(seq 1 600); do
+    [ "$(curl -s -o /dev/null -w '%{http_code}' "http://127.0.0.1:$PORT/health")" = "200" ] && break
+    sleep 0.1
+  done
+  rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  printf '%-8s first request %6d ms   RSS %7d KiB\n' "$variant" "$first" "$rss"
+}
+
+for variant in "${VARIANTS[@]}"; do
+  case "$variant" in
+    jar)    measure jar java -jar "$JAR" ;;
+    cds)    [ -f "$JSA" ] && measure cds java -XX:SharedArchiveFile="$JSA" -jar "$JAR" \
+              || echo "cds: $JSA missing, run mvn -Pcds package" >&2 ;;
+    native) [ -x "$NATIVE" ] && measure native "$NATIVE" \
+              || echo "native: $NATIVE missing, run mvn -Pnative package" >&2 ;;
+    *)      echo "unknown variant: $variant" >&2; exit 1 ;;
+  esac
+done
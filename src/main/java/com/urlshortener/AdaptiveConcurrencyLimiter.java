@@ -0,0 +1,124 @@
+package com.urlshortener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// AIMD limit on concurrent requests that do database work. Only calls made by an admitted
+// request's thread count; flushers, warm-up and other background work don't move the limit.
+// A slow or failed call shrinks it multiplicatively, at most once per window so a burst of
+// slow calls from the same stall only counts once. It grows by one at most once per window,
+// and only when that window saw no backoff and the limit was at least half in use.
+// Everything is lock-free: the window is advanced by whichever call wins a CAS.
+public class AdaptiveConcurrencyLimiter implements DatabaseLatencyListener {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final double backoffRatio;
+    private final double priorityReserve;
+    private final LongSupplier clock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicInteger limit;
+    private final AtomicLong lastDecrease;
+    private final AtomicLong windowStart;
+    private final ThreadLocal<Boolean> admitted = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private final LongAdder rejectedPriority = new LongAdder();
+    private final LongAdder rejectedStandard = new LongAdder();
+    private final LongAdder decreases = new LongAdder();
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMillis,
+                                      double backoffRatio, double priorityReserve) {
+        this(initialLimit, minLimit, maxLimit, latencyThresholdMillis, backoffRatio, priorityReserve, System::nanoTime);
+    }
+
+    // The latency threshold doubles as the window length.
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMillis,
+                               double backoffRatio, double priorityReserve, LongSupplier clock) {
+        if (minLimit <= 0 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Invalid concurrency limit settings");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.backoffRatio = backoffRatio;
+        this.priorityReserve = Math.max(0, Math.min(1, priorityReserve));
+        this.clock = clock;
+        this.limit = new AtomicInteger(Math.max(minLimit, Math.min(maxLimit, initialLimit)));
+        long now = clock.getAsLong();
+        this.lastDecrease = new AtomicLong(now - windowNanos);
+        this.windowStart = new AtomicLong(now);
+    }
+
+    // Priority callers may use the whole limit; everyone else stops short of the reserved share.
+    public boolean tryAcquire(boolean priority) {
+        int cap = priority ? getLimit() : Math.max(1, (int) (getLimit() * (1 - priorityReserve)));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= cap) {
+                (priority ? rejectedPriority : rejectedStandard).increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                if (current + 1 > peakInFlight.get()) {
+                    peakInFlight.accumulateAndGet(current + 1, Math::max);
+                }
+                admitted.set(Boolean.TRUE);
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        admitted.set(Boolean.FALSE);
+        inFlight.decrementAndGet();
+    }
+
+    @Override
+    public void onDatabaseCall(long latencyNanos, boolean failed) {
+        if (!admitted.get()) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (failed || latencyNanos > windowNanos) {
+            long last = lastDecrease.get();
+            if (now - last >= windowNanos && lastDecrease.compareAndSet(last, now)) {
+                limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+                decreases.increment();
+            }
+            return;
+        }
+
+        long start = windowStart.get();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        int peak = peakInFlight.getAndSet(inFlight.get());
+        // Only grow while the limit is actually in use; idle periods shouldn't inflate it.
+        if (lastDecrease.get() - start < 0 && peak * 2 >= limit.get()) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("limit", getLimit());
+        metrics.put("inFlight", inFlight.get());
+        metrics.put("rejectedPriority", rejectedPriority.sum());
+        metrics.put("rejectedStandard", rejectedStandard.sum());
+        metrics.put("decreases", decreases.sum());
+        return metrics;
+    }
+}
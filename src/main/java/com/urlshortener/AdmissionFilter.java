@@ -0,0 +1,54 @@
+package com.urlshortener;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class AdmissionFilter extends Filter {
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final boolean priority;
+
+    public AdmissionFilter(AdaptiveConcurrencyLimiter limiter, boolean priority) {
+        this.limiter = limiter;
+        this.priority = priority;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if (!limiter.tryAcquire(priority)) {
+            sendServiceUnavailable(exchange);
+            return;
+        }
+        try {
+            chain.doFilter(exchange);
+        } finally {
+            limiter.release();
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Adaptive concurrency admission control";
+    }
+
+    private void sendServiceUnavailable(HttpExchange exchange) throws IOException {
+        JSONObject errorResponse = new JSONObject();
+        errorResponse.put("success", false);
+        errorResponse.put("error", "Service overloaded, please retry");
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+        byte[] responseBytes = errorResponse.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(503, responseBytes.length);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(responseBytes);
+        }
+    }
+}
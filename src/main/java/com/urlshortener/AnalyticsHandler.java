@@ -2,15 +2,31 @@ package com.urlshortener;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class AnalyticsHandler implements HttpHandler {
+    private static final String TOP_PATH = "/analytics/top";
+    private static final String BREAKDOWN_SUFFIX = "/breakdown";
+    private static final int DEFAULT_TOP_N = 10;
+    private static final int DEFAULT_BREAKDOWN_VALUES = 20;
+    private static final int DEFAULT_BREAKDOWN_HOURS = 24;
+    private static final int MAX_BREAKDOWN_HOURS = 24 * 90;
+
     private final URLShortenerService urlService;
 
     public AnalyticsHandler(URLShortenerService urlService) {
@@ -38,13 +54,26 @@ public class AnalyticsHandler implements HttpHandler {
 
         try {
             String path = exchange.getRequestURI().getPath();
+            if (TOP_PATH.equals(path)) {
+                handleTop(exchange);
+                return;
+            }
             String shortCode = extractShortCode(path);
+            boolean breakdown = shortCode != null && shortCode.endsWith(BREAKDOWN_SUFFIX);
+            if (breakdown) {
+                shortCode = shortCode.substring(0, shortCode.length() - BREAKDOWN_SUFFIX.length());
+            }
 
             if (shortCode == null || shortCode.isEmpty()) {
                 sendErrorResponse(exchange, 400, "Invalid short code");
                 return;
             }
 
+            if (breakdown) {
+                handleBreakdown(exchange, shortCode);
+                return;
+            }
+
             Optional<URLEntry> urlEntryOpt = urlService.getAnalytics(shortCode);
 
             if (urlEntryOpt.isPresent()) {
@@ -54,10 +83,14 @@ public class AnalyticsHandler implements HttpHandler {
                 response.put("shortCode", urlEntry.getShortCode());
                 response.put("originalUrl", urlEntry.getOriginalUrl());
                 response.put("clickCount", urlEntry.getClickCount());
-                response.put("createdAt", urlEntry.getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                long uniqueVisitors = urlService.getUniqueVisitors(urlEntry.getShortCode());
+                if (uniqueVisitors >= 0) {
+                    response.put("uniqueVisitors", uniqueVisitors);
+                }
+                response.put("createdAt", formatTimestamp(urlEntry.getCreatedAtMillis()));
                 
-                if (urlEntry.getExpiresAt() != null) {
-                    response.put("expiresAt", urlEntry.getExpiresAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                if (urlEntry.hasExpiry()) {
+                    response.put("expiresAt", formatTimestamp(urlEntry.getExpiresAtMillis()));
                     response.put("isExpired", urlEntry.isExpired());
                 }
                 
@@ -76,6 +109,116 @@ public class AnalyticsHandler implements HttpHandler {
         }
     }
 
+    // Served from the in-memory heavy-hitters rankings, never from the database.
+    private void handleTop(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        HeavyHitters.Window window = HeavyHitters.Window.parse(params.getOrDefault("window", "1h"));
+        if (window == null) {
+            sendErrorResponse(exchange, 400, "window must be one of 1m, 1h, 24h");
+            return;
+        }
+
+        int n = parsePositive(params.get("n"), DEFAULT_TOP_N);
+        if (n < 1) {
+            sendErrorResponse(exchange, 400, "n must be a positive integer");
+            return;
+        }
+
+        List<HeavyHitters.Item> top = urlService.getTopLinks(window, n);
+        JSONArray links = new JSONArray();
+        for (HeavyHitters.Item item : top) {
+            JSONObject link = new JSONObject();
+            link.put("shortCode", item.getShortCode());
+            link.put("clicks", item.getCount());
+            link.put("maxError", item.getError());
+            links.put(link);
+        }
+
+        JSONObject response = new JSONObject();
+        response.put("success", true);
+        response.put("window", window.getLabel());
+        response.put("links", links);
+        sendResponse(exchange, 200, response.toString());
+    }
+
+    private void handleBreakdown(HttpExchange exchange, String shortCode) throws IOException, SQLException {
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        ClickDimensions.Dimension dimension = ClickDimensions.Dimension.parse(params.getOrDefault("dim", ""));
+        if (dimension == null) {
+            sendErrorResponse(exchange, 400, "dim must be one of referrer, agent, country");
+            return;
+        }
+        int n = parsePositive(params.get("n"), DEFAULT_BREAKDOWN_VALUES);
+        int hours = parsePositive(params.get("hours"), DEFAULT_BREAKDOWN_HOURS);
+        if (n < 1 || hours < 1 || hours > MAX_BREAKDOWN_HOURS) {
+            sendErrorResponse(exchange, 400, "n must be positive and hours between 1 and " + MAX_BREAKDOWN_HOURS);
+            return;
+        }
+
+        Optional<URLEntry> urlEntryOpt = urlService.getAnalytics(shortCode);
+        if (urlEntryOpt.isEmpty()) {
+            sendErrorResponse(exchange, 404, "Short code not found");
+            return;
+        }
+        String canonical = urlEntryOpt.get().getShortCode();
+        Map<String, Long> counts = urlService.getClickBreakdown(canonical, dimension, hours, n);
+        if (counts == null) {
+            sendErrorResponse(exchange, 404, "Click breakdowns are disabled");
+            return;
+        }
+
+        JSONArray values = new JSONArray();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            JSONObject value = new JSONObject();
+            value.put("value", entry.getKey());
+            value.put("clicks", entry.getValue());
+            values.put(value);
+        }
+
+        JSONObject response = new JSONObject();
+        response.put("success", true);
+        response.put("shortCode", canonical);
+        response.put("dimension", dimension.getLabel());
+        response.put("hours", hours);
+        response.put("values", values);
+        sendResponse(exchange, 200, response.toString());
+    }
+
+    // Missing means the default; anything unparsable comes back as -1.
+    private int parsePositive(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Entries carry epoch millis; the API speaks zone-less local date-times.
+    private static String formatTimestamp(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+            .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    private Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
     private String extractShortCode(String path) {
         if (path.startsWith("/analytics/")) {
             return path.substring(11);
@@ -2,6 +2,8 @@ package com.urlshortener;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class AppConfig {
@@ -14,6 +16,11 @@ public class AppConfig {
         loadProperties();
     }
 
+    // Tests that need their own settings, e.g. a throwaway database.
+    AppConfig(Properties properties) {
+        this.properties = properties;
+    }
+
     public static synchronized AppConfig getInstance() {
         if (instance == null) {
             instance = new AppConfig();
@@ -51,6 +58,79 @@ public class AppConfig {
         return getProperty("DB_URL", dbUrl);
     }
 
+    public List<String> getReplicaUrls() {
+        return getUrlList("DATABASE_REPLICA_URLS", "DB_REPLICA_URLS");
+    }
+
+    public List<String> getShardUrls() {
+        return getUrlList("DATABASE_SHARD_URLS", "DB_SHARD_URLS");
+    }
+
+    public List<String> getShardReplicaUrls(int shard) {
+        return getUrlList("DATABASE_SHARD_" + shard + "_REPLICA_URLS", "DB_SHARD_" + shard + "_REPLICA_URLS");
+    }
+
+    public int getShardCount() {
+        return getIntProperty("db.shard.count", 0);
+    }
+
+    public int getPreviousShardCount() {
+        return getIntProperty("db.shard.previous.count", 0);
+    }
+
+    public String getReplicaSelection() {
+        return getProperty("db.replica.selection", "round-robin");
+    }
+
+    public int getReplicaMaxLagMillis() {
+        return getIntProperty("db.replica.max.lag.ms", 1000);
+    }
+
+    public int getReplicaHealthCheckIntervalMillis() {
+        return getIntProperty("db.replica.health.interval.ms", 5000);
+    }
+
+    public int getReadYourWritesMillis() {
+        return getIntProperty("db.read.your.writes.ms", 5000);
+    }
+
+    // Expiring links go to range partitions on expires_at that are dropped once fully expired.
+    public boolean isPartitionedSchema() {
+        return getBooleanProperty("db.schema.partitioned", false);
+    }
+
+    public int getPartitionIntervalDays() {
+        return getIntProperty("db.partition.interval.days", 1);
+    }
+
+    public int getPartitionPrecreateDays() {
+        return getIntProperty("db.partition.precreate.days", 7);
+    }
+
+    private List<String> getUrlList(String envName, String propertyName) {
+        String value = System.getenv(envName);
+        if (value == null) {
+            value = getProperty(propertyName, null);
+        }
+
+        List<String> urls = new ArrayList<>();
+        if (value != null) {
+            for (String url : value.split(",")) {
+                if (!url.isBlank()) {
+                    urls.add(toJdbcUrl(url.trim()));
+                }
+            }
+        }
+        return urls;
+    }
+
+    private String toJdbcUrl(String url) {
+        if (url.startsWith("postgresql://") || url.startsWith("postgres://")) {
+            return "jdbc:postgresql://" + url.substring(url.indexOf("://") + 3);
+        }
+        return url;
+    }
+
     public String getDatabaseUsername() {
         String databaseUrl = System.getenv("DATABASE_URL");
         if (databaseUrl != null) {
@@ -111,6 +191,15 @@ public class AppConfig {
         return getIntProperty("server.threads", 10);
     }
 
+    // Per-route pools: server.pool.<route>.threads / server.pool.<route>.queue
+    public int getRoutePoolThreads(String route, int defaultValue) {
+        return getIntProperty("server.pool." + route + ".threads", defaultValue);
+    }
+
+    public int getRoutePoolQueue(String route, int defaultValue) {
+        return getIntProperty("server.pool." + route + ".queue", defaultValue);
+    }
+
     public String getBaseUrl() {
         String baseUrl = System.getenv("BASE_URL");
         if (baseUrl != null) {
@@ -141,10 +230,126 @@ public class AppConfig {
         return getIntProperty("app.short.code.length", 6);
     }
 
+    public String getCodeGenerator() {
+        return getProperty("app.code.generator", "sequence");
+    }
+
+    // -1 when neither NODE_ID nor app.node.id is set. There is no safe default: two nodes
+    // sharing an id mint colliding snowflake ids.
+    public int getNodeId() {
+        String nodeId = System.getenv("NODE_ID");
+        if (nodeId != null) {
+            try {
+                return Integer.parseInt(nodeId);
+            } catch (NumberFormatException e) {
+                System.err.println("Warning: Invalid NODE_ID value: " + nodeId);
+            }
+        }
+        return getIntProperty("app.node.id", -1);
+    }
+
+    public int getMaxClockSkewMillis() {
+        return getIntProperty("app.snowflake.max.skew.ms", 100);
+    }
+
+    public int getCodePoolCapacity() {
+        return getIntProperty("app.code.pool.capacity", 10000);
+    }
+
+    public int getCodePoolLowWatermark() {
+        return getIntProperty("app.code.pool.low.watermark", 2000);
+    }
+
+    public int getCodePoolBatchSize() {
+        return getIntProperty("app.code.pool.batch.size", 500);
+    }
+
+    public int getCodeReservationMaxAgeDays() {
+        return getIntProperty("app.code.pool.reservation.max.age.days", 7);
+    }
+
+    public int getIdempotencyMaxKeys() {
+        return getIntProperty("idempotency.max.keys", 10000);
+    }
+
+    public int getIdempotencyTtlSeconds() {
+        return getIntProperty("idempotency.ttl.seconds", 86400);
+    }
+
+    public boolean isDedupEnabled() {
+        return getBooleanProperty("app.dedup.enabled", false);
+    }
+
+    public int getDedupCacheEntries() {
+        return getIntProperty("app.dedup.cache.entries", 50000);
+    }
+
     public int getMaxRetryAttempts() {
         return getIntProperty("app.max.retry.attempts", 5);
     }
 
+    public int getLookupTimeoutMillis() {
+        return getIntProperty("app.lookup.timeout.ms", 5000);
+    }
+
+    // Count the click in the same statement that resolves an uncached redirect. Off by default:
+    // it sends every cache miss to the primary and bypasses replica reads and single-flight.
+    public boolean isRedirectInlineClickCount() {
+        return getBooleanProperty("redirect.inline.click.count", false);
+    }
+
+    public boolean isCacheEnabled() {
+        return getBooleanProperty("cache.enabled", true);
+    }
+
+    public int getCacheMaxEntries() {
+        return getIntProperty("cache.max.entries", 100000);
+    }
+
+    public boolean isCacheWarmupEnabled() {
+        return getBooleanProperty("cache.warmup.enabled", true);
+    }
+
+    public int getCacheWarmupTopN() {
+        return getIntProperty("cache.warmup.top", 10000);
+    }
+
+    public int getCacheWarmupRecentN() {
+        return getIntProperty("cache.warmup.recent", 0);
+    }
+
+    public int getCacheWarmupPageSize() {
+        return getIntProperty("cache.warmup.page.size", 1000);
+    }
+
+    public long getCacheWarmupBudgetMillis() {
+        return getIntProperty("cache.warmup.budget.ms", 30000);
+    }
+
+    public int getCacheWarmupThreads() {
+        return getIntProperty("cache.warmup.threads", 4);
+    }
+
+    public boolean isCacheSnapshotEnabled() {
+        return getBooleanProperty("cache.snapshot.enabled", false);
+    }
+
+    public String getCacheSnapshotPath() {
+        return getProperty("cache.snapshot.path", "data/redirect-cache.snapshot");
+    }
+
+    public int getCacheSnapshotMaxAgeMinutes() {
+        return getIntProperty("cache.snapshot.max.age.minutes", 60);
+    }
+
+    public int getCachePrefixDictionarySize() {
+        return getIntProperty("cache.prefix.dictionary.size", 65536);
+    }
+
+    public boolean isCacheInvalidationEnabled() {
+        return getBooleanProperty("cache.invalidation.enabled", true);
+    }
+
     public boolean isUrlValidationEnabled() {
         return getBooleanProperty("security.validate.urls", true);
     }
@@ -161,6 +366,66 @@ public class AppConfig {
         return getBooleanProperty("analytics.track.clicks", true);
     }
 
+    public boolean isTopLinksEnabled() {
+        return getBooleanProperty("analytics.top.enabled", true);
+    }
+
+    // Codes kept per summary; rankings deeper than this are not available.
+    public int getTopLinksCapacity() {
+        return getIntProperty("analytics.top.capacity", 1000);
+    }
+
+    public int getTopLinksMaxKeysPerSlice() {
+        return getIntProperty("analytics.top.slice.keys", 100000);
+    }
+
+    public boolean isVisitorTrackingEnabled() {
+        return getBooleanProperty("analytics.visitors.enabled", true);
+    }
+
+    public int getVisitorFlushSeconds() {
+        return getIntProperty("analytics.visitors.flush.seconds", 10);
+    }
+
+    // Each pending sketch is 1 KB; links first seen once the limit is reached are not counted until the next flush.
+    public int getVisitorMaxPendingSketches() {
+        return getIntProperty("analytics.visitors.max.pending", 20000);
+    }
+
+    // Days of per-link sketches kept; uniqueVisitors covers this window. 0 keeps them forever.
+    public int getVisitorRetentionDays() {
+        return getIntProperty("analytics.visitors.retention.days", 90);
+    }
+
+    public boolean isClickBreakdownEnabled() {
+        return getBooleanProperty("analytics.breakdown.enabled", true);
+    }
+
+    // Values kept per link, hour and dimension; the rest are counted as "(other)".
+    public int getClickBreakdownTopValues() {
+        return getIntProperty("analytics.breakdown.top.values", 50);
+    }
+
+    public int getClickBreakdownMaxPendingGroups() {
+        return getIntProperty("analytics.breakdown.max.pending", 30000);
+    }
+
+    public int getClickBreakdownFlushSeconds() {
+        return getIntProperty("analytics.breakdown.flush.seconds", 10);
+    }
+
+    // In-memory index behind /urls/search, loaded from the database at startup. Off by
+    // default: every node streams the whole urls table into roughly 200 bytes plus the URL
+    // per link of heap, and looks up each unknown code it hears about from other nodes.
+    public boolean isSearchIndexEnabled() {
+        return getBooleanProperty("search.index.enabled", false);
+    }
+
+    // Set by the CDN or load balancer in front of us; ignored when absent.
+    public String getCountryHeader() {
+        return getProperty("analytics.country.header", "CF-IPCountry");
+    }
+
     public boolean isCleanupEnabled() {
         return getBooleanProperty("cleanup.expired.urls", true);
     }
@@ -169,6 +434,74 @@ public class AppConfig {
         return getIntProperty("cleanup.interval.hours", 24);
     }
 
+    public boolean isAdmissionControlEnabled() {
+        return getBooleanProperty("admission.enabled", true);
+    }
+
+    public int getAdmissionInitialLimit() {
+        return getIntProperty("admission.limit.initial", 20);
+    }
+
+    public int getAdmissionMinLimit() {
+        return getIntProperty("admission.limit.min", 4);
+    }
+
+    public int getAdmissionMaxLimit() {
+        return getIntProperty("admission.limit.max", 200);
+    }
+
+    public long getAdmissionLatencyThresholdMillis() {
+        return getIntProperty("admission.latency.threshold.ms", 100);
+    }
+
+    public double getAdmissionBackoffRatio() {
+        return getDoubleProperty("admission.backoff.ratio", 0.9);
+    }
+
+    // Share of the limit only redirects may use.
+    public double getAdmissionRedirectReserve() {
+        return getDoubleProperty("admission.redirect.reserve", 0.2);
+    }
+
+    // Off by default: behind a proxy every client shares the proxy's bucket unless
+    // server.trust.forwarded.for is also set.
+    public boolean isRateLimitEnabled() {
+        return getBooleanProperty("ratelimit.enabled", false);
+    }
+
+    // Off by default: /metrics has no authentication and reveals top links and limits.
+    public boolean isMetricsEnabled() {
+        return getBooleanProperty("server.metrics.enabled", false);
+    }
+
+    public boolean isForwardedForTrusted() {
+        return getBooleanProperty("server.trust.forwarded.for", false);
+    }
+
+    public double getShortenRatePerSecond() {
+        return getDoubleProperty("ratelimit.shorten.rate", 1.0);
+    }
+
+    public int getShortenBurst() {
+        return getIntProperty("ratelimit.shorten.burst", 10);
+    }
+
+    public double getRedirectRatePerSecond() {
+        return getDoubleProperty("ratelimit.redirect.rate", 50.0);
+    }
+
+    public int getRedirectBurst() {
+        return getIntProperty("ratelimit.redirect.burst", 100);
+    }
+
+    public int getRateLimitMaxClients() {
+        return getIntProperty("ratelimit.max.clients", 100000);
+    }
+
+    public int getRateLimitIdleSeconds() {
+        return getIntProperty("ratelimit.idle.seconds", 300);
+    }
+
     private String getProperty(String key, String defaultValue) {
         return properties.getProperty(key, defaultValue);
     }
@@ -185,6 +518,18 @@ public class AppConfig {
         return defaultValue;
     }
 
+    private double getDoubleProperty(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value != null) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                System.err.println("Warning: Invalid number value for " + key + ": " + value);
+            }
+        }
+        return defaultValue;
+    }
+
     private boolean getBooleanProperty(String key, boolean defaultValue) {
         String value = properties.getProperty(key);
         if (value != null) {
@@ -197,12 +542,31 @@ public class AppConfig {
         System.out.println("URL Shortener Configuration:");
         System.out.println("- Database URL: " + getDatabaseUrl());
         System.out.println("- Database User: " + getDatabaseUsername());
+        System.out.println("- Shards: " + Math.max(1, getShardUrls().size()));
+        System.out.println("- Read Replicas: " + getReplicaUrls().size());
         System.out.println("- Server Host: " + getServerHost());
         System.out.println("- Server Port: " + getServerPort());
         System.out.println("- Base URL: " + getBaseUrl());
         System.out.println("- Short Code Length: " + getShortCodeLength());
+        System.out.println("- Code Generator: " + getCodeGenerator());
         System.out.println("- URL Validation: " + isUrlValidationEnabled());
+        System.out.println("- Deduplication: " + isDedupEnabled());
+        System.out.println("- Redirect Cache: " + (isCacheEnabled() ? getCacheMaxEntries() + " entries" : "disabled"));
+        if (isCacheEnabled() && isCacheWarmupEnabled()) {
+            System.out.println("- Cache Warm-up: top " + getCacheWarmupTopN() + ", recent " + getCacheWarmupRecentN()
+                + ", budget " + getCacheWarmupBudgetMillis() + "ms");
+        }
+        if (isCacheEnabled() && isCacheSnapshotEnabled()) {
+            System.out.println("- Cache Snapshot: " + getCacheSnapshotPath());
+        }
         System.out.println("- Analytics: " + isAnalyticsEnabled());
-        System.out.println("- Cleanup: " + isCleanupEnabled());
+        System.out.println("- Cleanup: " + isCleanupEnabled()
+            + (isPartitionedSchema() ? " (partition drop, " + getPartitionIntervalDays() + "-day ranges)" : ""));
+        System.out.println("- Rate Limiting: " + isRateLimitEnabled());
+        System.out.println("- Metrics Endpoint: " + isMetricsEnabled());
+        System.out.println("- Admission Control: " + (isAdmissionControlEnabled()
+            ? getAdmissionMinLimit() + "-" + getAdmissionMaxLimit() + " concurrent, "
+                + getAdmissionLatencyThresholdMillis() + "ms threshold"
+            : "disabled"));
     }
 }
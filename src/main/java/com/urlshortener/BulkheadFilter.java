@@ -0,0 +1,91 @@
+package com.urlshortener;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// First filter on a context: hands the rest of the chain (later filters and the handler)
+// to the route's own bounded pool, so one slow route can't occupy another route's threads.
+public class BulkheadFilter extends Filter {
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+
+    public BulkheadFilter(String name, int threads, int queueCapacity) {
+        this.name = name;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                Thread thread = new Thread(r, "http-" + name + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        try {
+            executor.execute(() -> {
+                try {
+                    chain.doFilter(exchange);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+                    exchange.close();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            sendServiceUnavailable(exchange);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Per-route executor isolation (" + name + ")";
+    }
+
+    private void sendServiceUnavailable(HttpExchange exchange) throws IOException {
+        JSONObject errorResponse = new JSONObject();
+        errorResponse.put("success", false);
+        errorResponse.put("error", "Service overloaded, please retry");
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        byte[] responseBytes = errorResponse.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(503, responseBytes.length);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(responseBytes);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threads", executor.getMaximumPoolSize());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("completed", executor.getCompletedTaskCount());
+        metrics.put("rejected", rejected.sum());
+        return metrics;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
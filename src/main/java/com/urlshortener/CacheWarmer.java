@@ -0,0 +1,101 @@
+package com.urlshortener;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fills the redirect cache before the node reports healthy, so a restart doesn't send the
+// first wave of traffic straight to Postgres. Most-clicked links load first on each shard;
+// whatever hasn't loaded when the time budget runs out is left to the normal miss path.
+public class CacheWarmer {
+    private final URLDatabase database;
+    private final URLShortenerService urlService;
+    private final int topN;
+    private final int recentN;
+    private final int pageSize;
+    private final long budgetMillis;
+    private final int threads;
+    private final AtomicInteger loaded = new AtomicInteger();
+    private volatile long deadline;
+
+    public CacheWarmer(URLDatabase database, URLShortenerService urlService, AppConfig config) {
+        this.database = database;
+        this.urlService = urlService;
+        int capacity = config.getCacheMaxEntries();
+        this.topN = Math.min(config.getCacheWarmupTopN(), capacity);
+        this.recentN = Math.min(config.getCacheWarmupRecentN(), Math.max(0, capacity - topN));
+        this.pageSize = Math.max(1, config.getCacheWarmupPageSize());
+        this.budgetMillis = config.getCacheWarmupBudgetMillis();
+        this.threads = Math.max(1, config.getCacheWarmupThreads());
+    }
+
+    public int run() {
+        List<Shard> shards = database.getShards();
+        if (topN + recentN <= 0 || shards.isEmpty()) {
+            return 0;
+        }
+
+        long started = System.currentTimeMillis();
+        deadline = started + budgetMillis;
+        // Links are spread evenly by hash, so each shard's share of the global top N is about N / shards.
+        int topPerShard = (topN + shards.size() - 1) / shards.size();
+        int recentPerShard = (recentN + shards.size() - 1) / shards.size();
+
+        System.out.println("Warming redirect cache: top " + topN + ", recent " + recentN
+            + " across " + shards.size() + " shard(s), budget " + budgetMillis + "ms");
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, shards.size()), r -> {
+            Thread thread = new Thread(r, "cache-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Shard shard : shards) {
+            executor.execute(() -> warmShard(shard, topPerShard, recentPerShard));
+        }
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                System.err.println("Cache warm-up budget exhausted, continuing with a partial cache");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        System.out.println("Cache warm-up finished: " + loaded.get() + " links in "
+            + (System.currentTimeMillis() - started) + "ms (" + urlService.getCachedEntryCount() + " cached)");
+        return loaded.get();
+    }
+
+    private void warmShard(Shard shard, int topPerShard, int recentPerShard) {
+        try {
+            if (topPerShard > 0) {
+                load(shard, URLDatabase.WarmupOrder.MOST_CLICKED, topPerShard);
+            }
+            if (recentPerShard > 0 && !expired()) {
+                load(shard, URLDatabase.WarmupOrder.MOST_RECENT, recentPerShard);
+            }
+        } catch (SQLException e) {
+            System.err.println("Cache warm-up failed on shard " + shard.getIndex() + ": " + e.getMessage());
+        }
+    }
+
+    private void load(Shard shard, URLDatabase.WarmupOrder order, int limit) throws SQLException {
+        database.forEachWarmupPage(shard, order, limit, pageSize, page -> {
+            urlService.preloadCache(page);
+            int total = loaded.addAndGet(page.size());
+            System.out.println("Cache warm-up: shard " + shard.getIndex() + " " + order + " +"
+                + page.size() + " (" + total + " total)");
+            return !expired();
+        });
+    }
+
+    private boolean expired() {
+        return System.currentTimeMillis() >= deadline || Thread.currentThread().isInterrupted();
+    }
+}
@@ -0,0 +1,82 @@
+package com.urlshortener;
+
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+// Training run for the AppCDS archive (see the "cds" profile). It needs no database: it
+// loads every class packaged in the jar and pushes one request through the JDK HTTP
+// server and org.json, so the dynamic archive covers what a real startup would load.
+public class ClassDataTraining {
+
+    public static void main(String[] args) throws Exception {
+        long started = System.currentTimeMillis();
+        int loaded = loadPackagedClasses();
+        exerciseHttpStack();
+        System.out.println("CDS training run loaded " + loaded + " classes in "
+            + (System.currentTimeMillis() - started) + "ms");
+    }
+
+    private static int loadPackagedClasses() throws Exception {
+        Path location = Paths.get(ClassDataTraining.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        if (!location.toString().endsWith(".jar")) {
+            System.err.println("Not running from a jar, skipping class preloading: " + location);
+            return 0;
+        }
+
+        int loaded = 0;
+        ClassLoader loader = ClassDataTraining.class.getClassLoader();
+        try (JarFile jar = new JarFile(location.toFile())) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (!name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+                    continue;
+                }
+                try {
+                    Class.forName(name.substring(0, name.length() - 6).replace('/', '.'), false, loader);
+                    loaded++;
+                } catch (Throwable e) {
+                    // Optional dependencies of the driver (e.g. OSGi, Waffle) are not on the classpath.
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static void exerciseHttpStack() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/health", exchange -> {
+            byte[] body = new JSONObject().put("status", "healthy").toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+
+        try {
+            URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/health");
+            HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+            try (InputStream in = connection.getInputStream()) {
+                new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            connection.disconnect();
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.urlshortener;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Click counts per (link, hour, dimension, value), aggregated in memory between flushes.
+// Each (link, hour, dimension) group tracks at most twice topValues distinct values; at
+// flush only the topValues largest are written and the rest are folded into OTHER, so
+// both memory and stored rows per link-hour stay bounded whatever the header cardinality.
+public class ClickBreakdowns {
+    static final String OTHER = "(other)";
+    private static final long MILLIS_PER_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    interface CountWriter {
+        void write(List<Count> counts) throws SQLException;
+    }
+
+    private final CountWriter writer;
+    private final int topValues;
+    private final int maxPendingGroups;
+    private final LongSupplier clock;
+    private volatile ConcurrentHashMap<GroupKey, Group> pending = new ConcurrentHashMap<>();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private ScheduledExecutorService flusher;
+
+    public ClickBreakdowns(CountWriter writer, int topValues, int maxPendingGroups) {
+        this(writer, topValues, maxPendingGroups, System::currentTimeMillis);
+    }
+
+    ClickBreakdowns(CountWriter writer, int topValues, int maxPendingGroups, LongSupplier clock) {
+        this.writer = writer;
+        this.topValues = Math.max(1, topValues);
+        this.maxPendingGroups = Math.max(1, maxPendingGroups);
+        this.clock = clock;
+    }
+
+    public void start(int flushIntervalSeconds) {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "breakdown-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void record(String shortCode, ClickDimensions dimensions) {
+        long hour = Math.floorDiv(clock.getAsLong(), MILLIS_PER_HOUR);
+        ConcurrentHashMap<GroupKey, Group> groups = pending;
+        for (ClickDimensions.Dimension dimension : ClickDimensions.Dimension.values()) {
+            GroupKey key = new GroupKey(shortCode, hour, dimension);
+            Group group = groups.get(key);
+            if (group == null) {
+                if (groups.size() >= maxPendingGroups) {
+                    dropped.increment();
+                    continue;
+                }
+                group = groups.computeIfAbsent(key, k -> new Group());
+            }
+            group.add(dimensions.get(dimension), topValues * 2);
+        }
+        recorded.increment();
+    }
+
+    // Increments racing with the swap may land in the drained map after it was read and are
+    // lost. Counts are additive, so a failed write is dropped rather than retried: part of it
+    // may already be committed on another shard.
+    synchronized void flush() {
+        ConcurrentHashMap<GroupKey, Group> drained = pending;
+        if (drained.isEmpty()) {
+            return;
+        }
+        pending = new ConcurrentHashMap<>();
+
+        List<Count> counts = new ArrayList<>();
+        for (Map.Entry<GroupKey, Group> entry : drained.entrySet()) {
+            GroupKey key = entry.getKey();
+            LocalDateTime hour = LocalDateTime.ofEpochSecond(key.hour * 3600, 0, ZoneOffset.UTC);
+            List<Map.Entry<String, LongAdder>> values = new ArrayList<>(entry.getValue().values.entrySet());
+            values.sort((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()));
+
+            long other = entry.getValue().other.sum();
+            for (int i = 0; i < values.size(); i++) {
+                long clicks = values.get(i).getValue().sum();
+                if (i < topValues && !OTHER.equals(values.get(i).getKey())) {
+                    counts.add(new Count(key.shortCode, key.dimension, values.get(i).getKey(), hour, clicks));
+                } else {
+                    other += clicks;
+                }
+            }
+            if (other > 0) {
+                counts.add(new Count(key.shortCode, key.dimension, OTHER, hour, other));
+            }
+        }
+
+        try {
+            writer.write(counts);
+            flushedRows.add(counts.size());
+        } catch (SQLException | RuntimeException e) {
+            flushFailures.increment();
+            System.err.println("Failed to flush " + counts.size() + " click breakdown rows: " + e.getMessage());
+        }
+    }
+
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("recorded", recorded.sum());
+        metrics.put("pendingGroups", pending.size());
+        metrics.put("droppedFull", dropped.sum());
+        metrics.put("flushedRows", flushedRows.sum());
+        metrics.put("flushFailures", flushFailures.sum());
+        return metrics;
+    }
+
+    public static final class Count {
+        private final String shortCode;
+        private final ClickDimensions.Dimension dimension;
+        private final String value;
+        private final LocalDateTime hour;
+        private final long clicks;
+
+        Count(String shortCode, ClickDimensions.Dimension dimension, String value, LocalDateTime hour, long clicks) {
+            this.shortCode = shortCode;
+            this.dimension = dimension;
+            this.value = value;
+            this.hour = hour;
+            this.clicks = clicks;
+        }
+
+        public String getShortCode() {
+            return shortCode;
+        }
+
+        public ClickDimensions.Dimension getDimension() {
+            return dimension;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public LocalDateTime getHour() {
+            return hour;
+        }
+
+        public long getClicks() {
+            return clicks;
+        }
+    }
+
+    private static final class Group {
+        private final ConcurrentHashMap<String, LongAdder> values = new ConcurrentHashMap<>();
+        private final LongAdder other = new LongAdder();
+
+        void add(String value, int maxValues) {
+            LongAdder counter = values.get(value);
+            if (counter == null) {
+                if (values.size() >= maxValues) {
+                    other.increment();
+                    return;
+                }
+                counter = values.computeIfAbsent(value, k -> new LongAdder());
+            }
+            counter.increment();
+        }
+    }
+
+    private static final class GroupKey {
+        private final String shortCode;
+        private final long hour;
+        private final ClickDimensions.Dimension dimension;
+
+        GroupKey(String shortCode, long hour, ClickDimensions.Dimension dimension) {
+            this.shortCode = shortCode;
+            this.hour = hour;
+            this.dimension = dimension;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof GroupKey)) {
+                return false;
+            }
+            GroupKey other = (GroupKey) o;
+            return hour == other.hour && dimension == other.dimension && shortCode.equals(other.shortCode);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shortCode, hour, dimension);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.urlshortener;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.net.URI;
+import java.util.Locale;
+
+// The per-click attributes we break analytics down by, reduced to low-cardinality values
+// before they leave the request thread.
+public class ClickDimensions {
+    static final String NONE = "(none)";
+    static final String UNKNOWN = "(unknown)";
+
+    public enum Dimension {
+        REFERRER(1, "referrer"), AGENT(2, "agent"), COUNTRY(3, "country");
+
+        private final int id;
+        private final String label;
+
+        Dimension(int id, String label) {
+            this.id = id;
+            this.label = label;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public static Dimension parse(String label) {
+            for (Dimension dimension : values()) {
+                if (dimension.label.equals(label)) {
+                    return dimension;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final String referrer;
+    private final String agent;
+    private final String country;
+
+    ClickDimensions(String referrer, String agent, String country) {
+        this.referrer = referrer;
+        this.agent = agent;
+        this.country = country;
+    }
+
+    public static ClickDimensions from(HttpExchange exchange, String countryHeader) {
+        String country = countryHeader != null ? exchange.getRequestHeaders().getFirst(countryHeader) : null;
+        return new ClickDimensions(
+            referrerHost(exchange.getRequestHeaders().getFirst("Referer")),
+            agentFamily(exchange.getRequestHeaders().getFirst("User-Agent")),
+            countryCode(country));
+    }
+
+    public String get(Dimension dimension) {
+        switch (dimension) {
+            case REFERRER:
+                return referrer;
+            case AGENT:
+                return agent;
+            default:
+                return country;
+        }
+    }
+
+    static String referrerHost(String referer) {
+        if (referer == null || referer.isBlank()) {
+            return NONE;
+        }
+        try {
+            String host = URI.create(referer.trim()).getHost();
+            if (host == null) {
+                return UNKNOWN;
+            }
+            host = host.toLowerCase(Locale.ROOT);
+            return host.startsWith("www.") ? host.substring(4) : host;
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN;
+        }
+    }
+
+    // Order matters: Edge and Opera also claim to be Chrome, and Chrome claims to be Safari.
+    static String agentFamily(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return UNKNOWN;
+        }
+        String ua = userAgent.toLowerCase(Locale.ROOT);
+        if (ua.contains("bot") || ua.contains("spider") || ua.contains("crawl") || ua.contains("preview")) {
+            return "Bot";
+        }
+        if (ua.startsWith("curl/") || ua.startsWith("wget/") || ua.contains("python") || ua.startsWith("java/")
+                || ua.contains("httpclient") || ua.contains("okhttp")) {
+            return "Tool";
+        }
+        if (ua.contains("edg/")) {
+            return "Edge";
+        }
+        if (ua.contains("opr/") || ua.contains("opera")) {
+            return "Opera";
+        }
+        if (ua.contains("firefox/")) {
+            return "Firefox";
+        }
+        if (ua.contains("chrome/") || ua.contains("crios/")) {
+            return "Chrome";
+        }
+        if (ua.contains("safari/")) {
+            return "Safari";
+        }
+        return "Other";
+    }
+
+    static String countryCode(String header) {
+        if (header == null) {
+            return UNKNOWN;
+        }
+        String code = header.trim().toUpperCase(Locale.ROOT);
+        if (code.length() != 2 || !Character.isLetter(code.charAt(0)) || !Character.isLetter(code.charAt(1))) {
+            return UNKNOWN;
+        }
+        return code;
+    }
+}
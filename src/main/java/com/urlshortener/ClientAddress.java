@@ -0,0 +1,25 @@
+package com.urlshortener;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.net.InetSocketAddress;
+
+public class ClientAddress {
+
+    public static String resolve(HttpExchange exchange, boolean trustForwardedFor) {
+        if (trustForwardedFor) {
+            String forwardedFor = exchange.getRequestHeaders().getFirst("X-Forwarded-For");
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                // Our load balancer appends the peer it saw, so the last hop is the one we can trust.
+                int comma = forwardedFor.lastIndexOf(',');
+                return forwardedFor.substring(comma + 1).trim();
+            }
+        }
+
+        InetSocketAddress remote = exchange.getRemoteAddress();
+        if (remote == null) {
+            return "unknown";
+        }
+        return remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+    }
+}
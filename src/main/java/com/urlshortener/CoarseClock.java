@@ -0,0 +1,29 @@
+package com.urlshortener;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Wall-clock millis refreshed by a daemon ticker once a millisecond. Expiry checks on the
+// redirect path read a volatile field instead of asking the OS, and are at most a tick stale.
+public final class CoarseClock {
+    private static final long TICK_NANOS = 1_000_000L;
+    private static volatile long now = System.currentTimeMillis();
+
+    static {
+        Thread ticker = new Thread(CoarseClock::tick, "coarse-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private CoarseClock() {}
+
+    public static long millis() {
+        return now;
+    }
+
+    private static void tick() {
+        while (true) {
+            now = System.currentTimeMillis();
+            LockSupport.parkNanos(TICK_NANOS);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.urlshortener;
+
+import java.nio.charset.StandardCharsets;
+
+// What the redirect path actually needs from a URLEntry: the target and its expiry.
+// The target is split into a dictionary prefix id and the remaining UTF-8 bytes.
+public final class CompactRedirect {
+    private static final long NO_EXPIRY = URLEntry.NO_EXPIRY;
+
+    private final int prefixId;
+    private final byte[] suffix;
+    private final long expiresAtEpochSeconds;
+    // Only set when the entry was looked up by custom alias; clicks are counted on the code.
+    private final String shortCode;
+    // False for entries restored from a snapshot until they have been checked against the DB.
+    private final boolean verified;
+
+    private CompactRedirect(int prefixId, byte[] suffix, long expiresAtEpochSeconds, String shortCode,
+                            boolean verified) {
+        this.prefixId = prefixId;
+        this.suffix = suffix;
+        this.expiresAtEpochSeconds = expiresAtEpochSeconds;
+        this.shortCode = shortCode;
+        this.verified = verified;
+    }
+
+    public static CompactRedirect of(String key, URLEntry entry, PrefixDictionary dictionary) {
+        return of(key, RedirectTarget.from(entry), dictionary);
+    }
+
+    public static CompactRedirect of(String key, RedirectTarget target, PrefixDictionary dictionary) {
+        long expiresAt = target.getExpiresAtMillis() / 1000;
+        String code = key.equals(target.getShortCode()) ? null : target.getShortCode();
+        return build(target.getOriginalUrl(), expiresAt, code, true, dictionary);
+    }
+
+    public static CompactRedirect restore(String url, long expiresAtEpochSeconds, String shortCode,
+                                          PrefixDictionary dictionary) {
+        return build(url, expiresAtEpochSeconds, shortCode, false, dictionary);
+    }
+
+    private static CompactRedirect build(String url, long expiresAt, String code, boolean verified,
+                                         PrefixDictionary dictionary) {
+        int split = prefixLength(url);
+        int prefixId = split > 0 ? dictionary.idFor(url.substring(0, split)) : PrefixDictionary.NONE;
+        String rest = prefixId == PrefixDictionary.NONE ? url : url.substring(split);
+        return new CompactRedirect(prefixId, rest.getBytes(StandardCharsets.UTF_8), expiresAt, code, verified);
+    }
+
+    // Scheme and authority, e.g. "https://example.com" out of "https://example.com/a?b".
+    static int prefixLength(String url) {
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd <= 0) {
+            return 0;
+        }
+        for (int i = schemeEnd + 3; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return url.length();
+    }
+
+    public String getOriginalUrl(PrefixDictionary dictionary) {
+        return dictionary.prefix(prefixId) + new String(suffix, StandardCharsets.UTF_8);
+    }
+
+    public String getShortCode(String key) {
+        return shortCode != null ? shortCode : key;
+    }
+
+    // Null unless the entry is cached under a custom alias.
+    public String getAliasedShortCode() {
+        return shortCode;
+    }
+
+    public long getExpiresAtEpochSeconds() {
+        return expiresAtEpochSeconds;
+    }
+
+    public boolean isVerified() {
+        return verified;
+    }
+
+    public boolean isExpired() {
+        return expiresAtEpochSeconds != NO_EXPIRY
+            && CoarseClock.millis() / 1000 > expiresAtEpochSeconds;
+    }
+
+    // Compressed-oops layout: 12-byte header, int, long and two references, plus the array.
+    public int estimatedBytes() {
+        int bytes = 40 + align(16 + suffix.length);
+        if (shortCode != null) {
+            bytes += 40 + shortCode.length();
+        }
+        return bytes;
+    }
+
+    static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+}
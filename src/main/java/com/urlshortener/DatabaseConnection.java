@@ -0,0 +1,65 @@
+package com.urlshortener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+public class DatabaseConnection {
+    private final String name;
+    private final String url;
+    private final String username;
+    private final String password;
+    private volatile Connection connection;
+
+    public DatabaseConnection(String name, String url, String username, String password) {
+        this.name = name;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    public Connection get() throws SQLException {
+        Connection current = connection;
+        if (current != null && !current.isClosed()) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (connection == null || connection.isClosed()) {
+                StatementRegistry.unregister(connection);
+                connection = openDedicated();
+                StatementRegistry.register(connection);
+            }
+            return connection;
+        }
+    }
+
+    // A separate physical connection for work that needs its own transaction, such as
+    // cursor-based streaming, without disturbing the shared connection.
+    public Connection openDedicated() throws SQLException {
+        if (username != null && password != null) {
+            return DriverManager.getConnection(url, username, password);
+        }
+        return DriverManager.getConnection(url);
+    }
+
+    public synchronized void reset() {
+        try {
+            close();
+        } catch (SQLException e) {
+            System.err.println("Warning: Error closing " + name + " connection: " + e.getMessage());
+        }
+        connection = null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized void close() throws SQLException {
+        StatementRegistry.unregister(connection);
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+}
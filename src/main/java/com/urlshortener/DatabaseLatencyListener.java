@@ -0,0 +1,5 @@
+package com.urlshortener;
+
+public interface DatabaseLatencyListener {
+    void onDatabaseCall(long latencyNanos, boolean failed);
+}
@@ -0,0 +1,272 @@
+package com.urlshortener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Hot links over sliding windows. Redirects only bump a LongAdder in the current 10-second
+// slice; every rotation turns that slice into a bounded top-k summary and rolls the
+// summaries up into minute and hour buckets (mergeable Space-Saving). The merged ranking for
+// each window is rebuilt on rotation, so a query just copies a prepared list.
+public class HeavyHitters {
+    static final long SLICE_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final int SLICES_PER_MINUTE = 6;
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int HOURS_PER_DAY = 24;
+
+    public enum Window {
+        MINUTE("1m"), HOUR("1h"), DAY("24h");
+
+        private final String label;
+
+        Window(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public static Window parse(String label) {
+            for (Window window : values()) {
+                if (window.label.equals(label)) {
+                    return window;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final int capacity;
+    private final int maxKeysPerSlice;
+    private volatile ConcurrentHashMap<String, LongAdder> current = new ConcurrentHashMap<>();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+
+    // Only touched by rotate(), which runs on a single thread.
+    private final Deque<Summary> slices = new ArrayDeque<>();
+    private final List<Summary> minuteParts = new ArrayList<>();
+    private final Deque<Summary> minutes = new ArrayDeque<>();
+    private final Deque<Summary> hours = new ArrayDeque<>();
+    private int minutesSinceHour;
+
+    private volatile Map<Window, List<Item>> rankings = emptyRankings();
+    private ScheduledExecutorService rotator;
+
+    public HeavyHitters(int capacity, int maxKeysPerSlice) {
+        this.capacity = Math.max(1, capacity);
+        this.maxKeysPerSlice = Math.max(1, maxKeysPerSlice);
+    }
+
+    public void start() {
+        rotator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "heavy-hitters");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rotator.scheduleAtFixedRate(this::rotate, SLICE_MILLIS, SLICE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(String shortCode) {
+        recorded.increment();
+        ConcurrentHashMap<String, LongAdder> slice = current;
+        LongAdder counter = slice.get(shortCode);
+        if (counter == null) {
+            // A slice flooded with one-off codes stops admitting new ones; anything hot has
+            // already been seen by then.
+            if (slice.size() >= maxKeysPerSlice) {
+                untracked.increment();
+                return;
+            }
+            LongAdder created = new LongAdder();
+            counter = slice.putIfAbsent(shortCode, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.increment();
+    }
+
+    public List<Item> top(Window window, int n) {
+        List<Item> ranking = rankings.get(window);
+        return new ArrayList<>(ranking.subList(0, Math.min(n, ranking.size())));
+    }
+
+    // Closes the current slice. Increments racing with the swap may land in the closed map
+    // after it was summarised and are lost; at 10-second granularity that is noise.
+    synchronized void rotate() {
+        ConcurrentHashMap<String, LongAdder> closed = current;
+        current = new ConcurrentHashMap<>();
+
+        Summary slice = Summary.ofExact(closed, capacity);
+        slices.addLast(slice);
+        if (slices.size() > SLICES_PER_MINUTE) {
+            slices.removeFirst();
+        }
+
+        minuteParts.add(slice);
+        if (minuteParts.size() == SLICES_PER_MINUTE) {
+            minutes.addLast(Summary.merge(minuteParts, capacity));
+            minuteParts.clear();
+            if (minutes.size() > MINUTES_PER_HOUR) {
+                minutes.removeFirst();
+            }
+            if (++minutesSinceHour == MINUTES_PER_HOUR) {
+                hours.addLast(Summary.merge(lastOf(minutes, MINUTES_PER_HOUR), capacity));
+                minutesSinceHour = 0;
+                if (hours.size() > HOURS_PER_DAY) {
+                    hours.removeFirst();
+                }
+            }
+        }
+
+        // Each window is whole buckets plus the partial bucket in progress, so it covers
+        // between the nominal length and one bucket more.
+        List<Summary> hour = new ArrayList<>(minutes);
+        hour.addAll(minuteParts);
+        List<Summary> day = new ArrayList<>(hours);
+        day.addAll(lastOf(minutes, minutesSinceHour));
+        day.addAll(minuteParts);
+
+        Map<Window, List<Item>> updated = new EnumMap<>(Window.class);
+        updated.put(Window.MINUTE, Summary.merge(slices, capacity).items());
+        updated.put(Window.HOUR, Summary.merge(hour, capacity).items());
+        updated.put(Window.DAY, Summary.merge(day, capacity).items());
+        rankings = updated;
+    }
+
+    public void close() {
+        if (rotator != null) {
+            rotator.shutdownNow();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("recorded", recorded.sum());
+        metrics.put("untracked", untracked.sum());
+        metrics.put("currentSliceKeys", current.size());
+        metrics.put("capacity", capacity);
+        return metrics;
+    }
+
+    private static List<Summary> lastOf(Deque<Summary> summaries, int count) {
+        List<Summary> all = new ArrayList<>(summaries);
+        return all.subList(Math.max(0, all.size() - count), all.size());
+    }
+
+    private static Map<Window, List<Item>> emptyRankings() {
+        Map<Window, List<Item>> empty = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            empty.put(window, Collections.emptyList());
+        }
+        return empty;
+    }
+
+    // count is an upper bound and count - error a lower bound on the true number of hits.
+    public static final class Item {
+        private final String shortCode;
+        private final long count;
+        private final long error;
+
+        Item(String shortCode, long count, long error) {
+            this.shortCode = shortCode;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getShortCode() {
+            return shortCode;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+
+    // At most capacity codes sorted by count; any code left out has at most floor hits.
+    static final class Summary {
+        private final String[] codes;
+        private final long[] counts;
+        private final long[] errors;
+        private final long floor;
+
+        private Summary(String[] codes, long[] counts, long[] errors, long floor) {
+            this.codes = codes;
+            this.counts = counts;
+            this.errors = errors;
+            this.floor = floor;
+        }
+
+        static Summary ofExact(Map<String, LongAdder> exact, int capacity) {
+            Map<String, long[]> totals = new HashMap<>(exact.size() * 2);
+            for (Map.Entry<String, LongAdder> entry : exact.entrySet()) {
+                totals.put(entry.getKey(), new long[] {entry.getValue().sum(), 0});
+            }
+            return truncate(totals, capacity, 0);
+        }
+
+        static Summary merge(Iterable<Summary> parts, int capacity) {
+            long floorSum = 0;
+            for (Summary part : parts) {
+                floorSum += part.floor;
+            }
+            // A code missing from a part may still have had up to that part's floor hits there.
+            Map<String, long[]> totals = new HashMap<>();
+            for (Summary part : parts) {
+                for (int i = 0; i < part.codes.length; i++) {
+                    long[] total = totals.computeIfAbsent(part.codes[i], k -> new long[2]);
+                    total[0] += part.counts[i] - part.floor;
+                    total[1] += part.errors[i] - part.floor;
+                }
+            }
+            for (long[] total : totals.values()) {
+                total[0] += floorSum;
+                total[1] += floorSum;
+            }
+            return truncate(totals, capacity, floorSum);
+        }
+
+        private static Summary truncate(Map<String, long[]> totals, int capacity, long floor) {
+            List<Map.Entry<String, long[]>> entries = new ArrayList<>(totals.entrySet());
+            entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+            int size = Math.min(capacity, entries.size());
+            if (entries.size() > size) {
+                floor = Math.max(floor, entries.get(size).getValue()[0]);
+            }
+            String[] codes = new String[size];
+            long[] counts = new long[size];
+            long[] errors = new long[size];
+            for (int i = 0; i < size; i++) {
+                codes[i] = entries.get(i).getKey();
+                counts[i] = entries.get(i).getValue()[0];
+                errors[i] = entries.get(i).getValue()[1];
+            }
+            return new Summary(codes, counts, errors, floor);
+        }
+
+        List<Item> items() {
+            Item[] items = new Item[codes.length];
+            for (int i = 0; i < codes.length; i++) {
+                items[i] = new Item(codes[i], counts[i], errors[i]);
+            }
+            return Collections.unmodifiableList(Arrays.asList(items));
+        }
+    }
+}
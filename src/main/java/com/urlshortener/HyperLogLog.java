@@ -0,0 +1,72 @@
+package com.urlshortener;
+
+// Distinct-count sketch with 2^10 one-byte registers: 1 KB per sketch and about 3%
+// standard error. Sketches merge by taking the register-wise maximum, so per-node and
+// per-day sketches can be combined in any order, repeatedly, without double counting.
+public class HyperLogLog {
+    static final int PRECISION = 10;
+    static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != REGISTERS) {
+            throw new IllegalArgumentException("Expected a " + REGISTERS + "-byte sketch");
+        }
+        return new HyperLogLog(bytes.clone());
+    }
+
+    // The shard-placement hash: FNV-1a finished with the MurmurHash3 mixer, so nearby
+    // inputs such as consecutive addresses spread over all registers.
+    public static long hash(String value) {
+        return JumpConsistentHash.hash(value);
+    }
+
+    public synchronized void add(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Rank of the first set bit in the remaining bits; the sentinel bit caps it.
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public synchronized void merge(HyperLogLog other) {
+        byte[] theirs = other.toBytes();
+        for (int i = 0; i < REGISTERS; i++) {
+            if (theirs[i] > registers[i]) {
+                registers[i] = theirs[i];
+            }
+        }
+    }
+
+    public synchronized long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        // Small cardinalities are far more accurate from the share of untouched registers.
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public synchronized byte[] toBytes() {
+        return registers.clone();
+    }
+}
@@ -0,0 +1,188 @@
+package com.urlshortener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Remembers the response to each Idempotency-Key so a client retry gets the original result
+// instead of creating a second link. A retry that arrives while the first request is still
+// running waits for it, and is told to come back later if it is still running after that.
+// Only final answers are kept; a failed attempt frees the key for the next retry to claim.
+public class IdempotencyCache {
+    private static final int EVICTION_SCAN = 32;
+
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+    private final LongAdder inProgress = new LongAdder();
+
+    public static class Response {
+        private final int status;
+        private final String body;
+
+        public Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    public interface Action {
+        // Returns null when the outcome should not be remembered (e.g. a server error).
+        Response run() throws Exception;
+    }
+
+    public static class KeyReuseException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public KeyReuseException() {
+            super("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    public static class InProgressException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public InProgressException() {
+            super("A request with this Idempotency-Key is still in progress");
+        }
+    }
+
+    private static class Slot {
+        final String fingerprint;
+        final long createdAt;
+        final CompletableFuture<Response> result = new CompletableFuture<>();
+
+        Slot(String fingerprint, long createdAt) {
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+    }
+
+    public IdempotencyCache(int maxEntries, long ttlSeconds) {
+        this(maxEntries, ttlSeconds, System::nanoTime);
+    }
+
+    IdempotencyCache(int maxEntries, long ttlSeconds, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.clock = clock;
+    }
+
+    // Returns the remembered response for the key if there is one, otherwise claims the key
+    // and runs the action. Only the claim holder ever runs it, so a key runs at most once at
+    // a time.
+    public Outcome execute(String key, String fingerprint, long waitMillis, Action action) throws Exception {
+        while (true) {
+            long now = clock.getAsLong();
+            Slot slot = new Slot(fingerprint, now);
+            Slot existing = slots.putIfAbsent(key, slot);
+            if (existing != null && now - existing.createdAt > ttlNanos) {
+                existing = slots.replace(key, existing, slot) ? null : slots.putIfAbsent(key, slot);
+            }
+            if (existing == null) {
+                return runClaimed(key, slot, action);
+            }
+
+            if (!existing.fingerprint.equals(fingerprint)) {
+                mismatches.increment();
+                throw new KeyReuseException();
+            }
+            Response response;
+            try {
+                response = existing.result.get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                inProgress.increment();
+                throw new InProgressException();
+            } catch (ExecutionException e) {
+                response = null;
+            }
+            if (response != null) {
+                replays.increment();
+                return new Outcome(response, true);
+            }
+            // The original attempt failed and gave up the key; race the other retries for it.
+            slots.remove(key, existing);
+        }
+    }
+
+    private Outcome runClaimed(String key, Slot slot, Action action) throws Exception {
+        evictIfFull();
+        Response response = null;
+        try {
+            response = action.run();
+            return new Outcome(response, false);
+        } finally {
+            if (response == null) {
+                slots.remove(key, slot);
+            }
+            slot.result.complete(response);
+        }
+    }
+
+    public static class Outcome {
+        private final Response response;
+        private final boolean replayed;
+
+        Outcome(Response response, boolean replayed) {
+            this.response = response;
+            this.replayed = replayed;
+        }
+
+        public Response getResponse() {
+            return response;
+        }
+
+        public boolean isReplayed() {
+            return replayed;
+        }
+    }
+
+    // Looks at a bounded number of entries per insert instead of sweeping the whole map, so
+    // a full cache costs every new key the same small amount. Expired entries go first,
+    // then finished ones until the cache is back under its limit.
+    private void evictIfFull() {
+        int excess = slots.size() - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+        long now = clock.getAsLong();
+        Iterator<Slot> it = slots.values().iterator();
+        for (int scanned = 0; scanned < EVICTION_SCAN && it.hasNext(); scanned++) {
+            Slot slot = it.next();
+            if (!slot.result.isDone()) {
+                continue;
+            }
+            if (excess > 0 || now - slot.createdAt > ttlNanos) {
+                it.remove();
+                excess--;
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("keys", slots.size());
+        metrics.put("replays", replays.sum());
+        metrics.put("mismatches", mismatches.sum());
+        metrics.put("inProgress", inProgress.sum());
+        return metrics;
+    }
+}
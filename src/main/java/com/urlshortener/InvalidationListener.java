@@ -0,0 +1,136 @@
+package com.urlshortener;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps node-local caches coherent across instances. Every write path publishes the
+// affected codes on CHANNEL (see URLDatabase), and each node holds one LISTEN
+// connection per shard. After a reconnect we can't know what was missed, so
+// subscribers are told to drop everything.
+public class InvalidationListener {
+    public static final String CHANNEL = "url_invalidations";
+    public static final String INVALIDATE_ALL = "*";
+
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 10000;
+
+    public interface Subscriber {
+        void invalidate(List<String> shortCodes);
+        void invalidateAll();
+    }
+
+    private final List<Shard> shards;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private volatile boolean running;
+
+    public InvalidationListener(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void start() {
+        running = true;
+        for (Shard shard : shards) {
+            Thread thread = new Thread(() -> listen(shard), "invalidation-listener-" + shard.getIndex());
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    private void listen(Shard shard) {
+        long backoff = 100;
+        boolean missedMessages = false;
+
+        while (running) {
+            try (Connection connection = shard.getPrimary().openDedicated()) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                if (missedMessages) {
+                    reconnects.increment();
+                    System.out.println("Invalidation listener reconnected to shard " + shard.getIndex() + ", resyncing caches");
+                    publishAll();
+                    missedMessages = false;
+                }
+                backoff = 100;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                System.err.println("Warning: Invalidation listener for shard " + shard.getIndex() + " failed: " + e.getMessage());
+                missedMessages = true;
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        messages.increment();
+        if (payload == null || payload.isEmpty()) {
+            return;
+        }
+        if (INVALIDATE_ALL.equals(payload)) {
+            publishAll();
+            return;
+        }
+
+        List<String> shortCodes = Arrays.asList(payload.split(","));
+        for (Subscriber subscriber : subscribers) {
+            subscriber.invalidate(shortCodes);
+        }
+    }
+
+    private void publishAll() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.invalidateAll();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("messages", messages.sum());
+        metrics.put("reconnects", reconnects.sum());
+        return metrics;
+    }
+
+    public void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.urlshortener;
+
+import java.nio.charset.StandardCharsets;
+
+public class JumpConsistentHash {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Lamping & Veach: growing from n to n + 1 buckets moves only 1/(n + 1) of the keys,
+    // and every moved key lands in the new bucket.
+    public static int bucket(long key, int buckets) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("Bucket count must be positive: " + buckets);
+        }
+
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    public static int bucket(String key, int buckets) {
+        return bucket(hash(key), buckets);
+    }
+
+    // FNV-1a over the UTF-8 bytes followed by a murmur3 finalizer, so placement is
+    // stable across JVMs and releases (unlike String.hashCode()).
+    public static long hash(String value) {
+        long h = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= FNV_PRIME;
+        }
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+}
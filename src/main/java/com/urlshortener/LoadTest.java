@@ -0,0 +1,380 @@
+package com.urlshortener;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-loop load generator behind `java -jar url-shortener.jar loadtest`. Requests go out on
+// a fixed schedule whatever the server is doing, and latency is measured from when a request
+// was due rather than when it was sent, so a stall is charged to every request it held back
+// instead of only the one that hit it (coordinated omission). Time from the actual send is
+// reported alongside as service time.
+public class LoadTest {
+    enum Operation {
+        REDIRECT("redirect"),
+        SHORTEN("shorten"),
+        ANALYTICS("analytics");
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        static Operation parse(String name) {
+            for (Operation operation : values()) {
+                if (operation.name.equals(name)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation: " + name);
+        }
+    }
+
+    private static final String DEFAULT_MIX = "redirect=90,shorten=5,analytics=5";
+
+    private final HttpClient client;
+    private final URI target;
+    private final double rate;
+    private final Map<Operation, Integer> mix;
+    private final int totalWeight;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final Random random;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong shortened = new AtomicLong();
+    private String[] codes;
+    private ZipfSampler sampler;
+
+    LoadTest(URI target, double rate, Map<Operation, Integer> mix, int maxInFlight, Duration timeout, long seed) {
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .build();
+        this.target = target;
+        this.rate = rate;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+        this.random = new Random(seed);
+    }
+
+    // Creates the links the redirect and analytics traffic is spread over.
+    void seed(int count, double zipfExponent) throws IOException, InterruptedException {
+        codes = new String[count];
+        for (int i = 0; i < count; i++) {
+            HttpResponse<String> response = client.send(shortenRequest(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Seeding failed with HTTP " + response.statusCode() + ": " + response.body());
+            }
+            codes[i] = new JSONObject(response.body()).getString("shortCode");
+        }
+        sampler = new ZipfSampler(count, zipfExponent);
+    }
+
+    // Issues rate * seconds requests, each at its scheduled time. When maxInFlight requests
+    // are outstanding the schedule waits, but later requests keep their original due times,
+    // so the wait still shows up in their latency.
+    Phase run(int seconds) throws InterruptedException {
+        Phase phase = new Phase();
+        long requests = (long) (rate * seconds);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long start = System.nanoTime();
+
+        for (long i = 0; i < requests; i++) {
+            long due = start + (long) (i * 1_000_000_000.0 / rate);
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+
+            Operation operation = pickOperation();
+            HttpRequest request = request(operation);
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                phase.record(operation, due, sent, System.nanoTime(), response != null ? response.statusCode() : -1);
+                inFlight.release();
+            });
+        }
+
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+        phase.elapsedNanos = System.nanoTime() - start;
+        return phase;
+    }
+
+    private Operation pickOperation() {
+        int pick = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty mix");
+    }
+
+    private HttpRequest request(Operation operation) {
+        switch (operation) {
+            case REDIRECT:
+                return get("/u/" + codes[sampler.next(random)]);
+            case ANALYTICS:
+                return get("/analytics/" + codes[sampler.next(random)]);
+            default:
+                return shortenRequest();
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(target.resolve(path)).timeout(timeout).GET().build();
+    }
+
+    // Every posted URL is distinct so deduplication doesn't turn writes into lookups.
+    private HttpRequest shortenRequest() {
+        JSONObject body = new JSONObject();
+        body.put("url", "https://loadtest.example/" + runId + "/" + shortened.incrementAndGet());
+        return HttpRequest.newBuilder(target.resolve("/shorten"))
+            .timeout(timeout)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+            .build();
+    }
+
+    static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            int eq = part.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected operation=weight, got: " + part);
+            }
+            int weight = Integer.parseInt(part.substring(eq + 1).trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight: " + part);
+            }
+            if (weight > 0) {
+                mix.put(Operation.parse(part.substring(0, eq).trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight");
+        }
+        return mix;
+    }
+
+    static final class Stats {
+        // From the scheduled time, i.e. corrected for coordinated omission.
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+
+        void record(long due, long sent, long done, int status) {
+            latency.record((done - due) / 1000);
+            serviceTime.record((done - sent) / 1000);
+            if (status < 0 || status >= 400) {
+                errors.increment();
+            }
+        }
+    }
+
+    static final class Phase {
+        final Map<Operation, Stats> operations = new EnumMap<>(Operation.class);
+        final Stats all = new Stats();
+        // -1 for requests that failed without a response, e.g. timeouts.
+        final ConcurrentHashMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        long elapsedNanos;
+
+        Phase() {
+            for (Operation operation : Operation.values()) {
+                operations.put(operation, new Stats());
+            }
+        }
+
+        void record(Operation operation, long due, long sent, long done, int status) {
+            operations.get(operation).record(due, sent, done, status);
+            all.record(due, sent, done, status);
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+    }
+
+    private static void report(Phase phase) {
+        double seconds = phase.elapsedNanos / 1e9;
+        System.out.println();
+        System.out.println("Latency from scheduled send (corrected for coordinated omission):");
+        printHeader();
+        for (Map.Entry<Operation, Stats> entry : phase.operations.entrySet()) {
+            if (entry.getValue().latency.getCount() > 0) {
+                printRow(entry.getKey().name, entry.getValue().latency, entry.getValue().errors.sum(), seconds);
+            }
+        }
+        printRow("all", phase.all.latency, phase.all.errors.sum(), seconds);
+
+        System.out.println();
+        System.out.println("Service time from actual send (uncorrected, for comparison):");
+        printHeader();
+        for (Map.Entry<Operation, Stats> entry : phase.operations.entrySet()) {
+            if (entry.getValue().serviceTime.getCount() > 0) {
+                printRow(entry.getKey().name, entry.getValue().serviceTime, entry.getValue().errors.sum(), seconds);
+            }
+        }
+        printRow("all", phase.all.serviceTime, phase.all.errors.sum(), seconds);
+
+        StringBuilder statuses = new StringBuilder("Status codes:");
+        new TreeMap<>(phase.statuses).forEach((status, count) ->
+            statuses.append(' ').append(status < 0 ? "failed" : String.valueOf(status)).append('=').append(count.sum()));
+        System.out.println();
+        System.out.println(statuses);
+        if (phase.statuses.containsKey(429)) {
+            System.out.println("Requests were rate limited; raise the ratelimit.* settings or run with --start-server.");
+        }
+    }
+
+    private static void printHeader() {
+        System.out.println(String.format("%-10s %9s %9s %9s %9s %9s %9s %7s",
+            "operation", "count", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors"));
+    }
+
+    private static void printRow(String name, LatencyHistogram histogram, long errors, double seconds) {
+        System.out.println(String.format("%-10s %9d %9.1f %9.3f %9.3f %9.3f %9.3f %7d",
+            name, histogram.getCount(), histogram.getCount() / seconds,
+            histogram.percentile(50) / 1000.0, histogram.percentile(99) / 1000.0,
+            histogram.percentile(99.9) / 1000.0, histogram.getMax() / 1000.0, errors));
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java -jar url-shortener.jar loadtest [OPTIONS]");
+        System.out.println("Options:");
+        System.out.println("  --target <url>          Server to test (default: http://localhost:8080)");
+        System.out.println("  --rate <n>              Requests per second (default: 200)");
+        System.out.println("  --duration <seconds>    Measured run length (default: 30)");
+        System.out.println("  --warmup <seconds>      Unreported run before it (default: 5)");
+        System.out.println("  --mix <op=weight,...>   redirect, shorten and analytics weights (default: " + DEFAULT_MIX + ")");
+        System.out.println("  --codes <n>             Links created up front for redirects and analytics (default: 1000)");
+        System.out.println("  --zipf <exponent>       Skew of the code popularity (default: 1.0)");
+        System.out.println("  --max-in-flight <n>     Outstanding requests before the schedule waits (default: 1000)");
+        System.out.println("  --timeout <seconds>     Per-request timeout (default: 10)");
+        System.out.println("  --seed <n>              Random seed for the mix and code choice (default: 42)");
+        System.out.println("  --start-server          Start a server in this JVM on the target's host and port,");
+        System.out.println("                          with rate limiting off unless -Dratelimit.enabled is given");
+    }
+
+    public static void main(String[] args) {
+        String targetUrl = "http://localhost:8080";
+        double rate = 200;
+        int duration = 30;
+        int warmup = 5;
+        String mixSpec = DEFAULT_MIX;
+        int codeCount = 1000;
+        double zipfExponent = 1.0;
+        int maxInFlight = 1000;
+        int timeoutSeconds = 10;
+        long seed = 42;
+        boolean startServer = false;
+
+        Map<Operation, Integer> mix;
+        URI target;
+        try {
+            // args[0] is the "loadtest" command itself.
+            for (int i = 1; i < args.length; i++) {
+                String option = args[i];
+                if ("--start-server".equals(option)) {
+                    startServer = true;
+                    continue;
+                }
+                if ("--help".equals(option)) {
+                    printUsage();
+                    return;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--target":
+                        targetUrl = value;
+                        break;
+                    case "--rate":
+                        rate = Double.parseDouble(value);
+                        break;
+                    case "--duration":
+                        duration = Integer.parseInt(value);
+                        break;
+                    case "--warmup":
+                        warmup = Integer.parseInt(value);
+                        break;
+                    case "--mix":
+                        mixSpec = value;
+                        break;
+                    case "--codes":
+                        codeCount = Integer.parseInt(value);
+                        break;
+                    case "--zipf":
+                        zipfExponent = Double.parseDouble(value);
+                        break;
+                    case "--max-in-flight":
+                        maxInFlight = Integer.parseInt(value);
+                        break;
+                    case "--timeout":
+                        timeoutSeconds = Integer.parseInt(value);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+            mix = parseMix(mixSpec);
+            target = URI.create(targetUrl);
+            if (rate <= 0 || duration < 1 || warmup < 0 || codeCount < 1 || maxInFlight < 1 || timeoutSeconds < 1) {
+                throw new IllegalArgumentException("rate, duration, codes, max-in-flight and timeout must be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(1);
+            return;
+        }
+
+        try {
+            if (startServer) {
+                if (System.getProperty("ratelimit.enabled") == null) {
+                    System.setProperty("ratelimit.enabled", "false");
+                }
+                new URLShortenerServer(target.getPort() > 0 ? target.getPort() : 80, target.getHost()).start();
+            }
+
+            LoadTest loadTest = new LoadTest(target, rate, mix, maxInFlight, Duration.ofSeconds(timeoutSeconds), seed);
+            System.out.println("Seeding " + codeCount + " links on " + target);
+            loadTest.seed(codeCount, zipfExponent);
+            if (warmup > 0) {
+                System.out.println("Warming up for " + warmup + "s at " + rate + " req/s");
+                loadTest.run(warmup);
+            }
+            System.out.println("Running for " + duration + "s at " + rate + " req/s, mix " + mixSpec);
+            report(loadTest.run(duration));
+        } catch (Exception e) {
+            System.err.println("Load test failed: " + e.getMessage());
+            System.exit(1);
+        }
+        if (startServer) {
+            // The server's threads would keep the JVM alive; its shutdown hook stops it.
+            System.exit(0);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.urlshortener;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class MetricsHandler implements HttpHandler {
+    private final Map<String, Supplier<Map<String, ?>>> sections = new LinkedHashMap<>();
+
+    public void register(String name, Supplier<Map<String, ?>> section) {
+        sections.put(name, section);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+
+        JSONObject response = new JSONObject();
+        for (Map.Entry<String, Supplier<Map<String, ?>>> section : sections.entrySet()) {
+            response.put(section.getKey(), new JSONObject(section.getValue().get()));
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        byte[] responseBytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, responseBytes.length);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(responseBytes);
+        }
+    }
+}
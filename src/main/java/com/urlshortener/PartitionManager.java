@@ -0,0 +1,256 @@
+package com.urlshortener;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Partitioned schema mode: links with an expiry live in range partitions of urls keyed by
+// expires_at, permanent links in the default partition. A partition whose range has fully
+// passed is dropped in one statement instead of deleting its rows one by one.
+//
+// Unique constraints on a partitioned table must include the partition key, so global
+// uniqueness of codes (and aliases, which are stored as codes) moves to the narrow
+// url_codes table. Its rows are still deleted per row, but they are a code and a timestamp
+// rather than the full link with its TOAST and index entries.
+class PartitionManager {
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String PREFIX = "urls_p";
+
+    private final int intervalDays;
+    private final int precreateDays;
+    private final Set<String> knownPartitions = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+    private volatile Consumer<List<String>> deletionListener;
+
+    interface Invalidator {
+        void publish(Connection connection, List<String> shortCodes) throws SQLException;
+    }
+
+    PartitionManager(int intervalDays, int precreateDays) {
+        this.intervalDays = Math.max(1, intervalDays);
+        this.precreateDays = Math.max(0, precreateDays);
+    }
+
+    // Told the codes of every dropped partition once the drop has committed.
+    void setDeletionListener(Consumer<List<String>> deletionListener) {
+        this.deletionListener = deletionListener;
+    }
+
+    // Returns false when urls already exists as a plain table; that shard keeps the plain schema.
+    static boolean createSchema(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT relkind FROM pg_class WHERE oid = to_regclass('urls')")) {
+            if (rs.next() && !"p".equals(rs.getString(1))) {
+                return false;
+            }
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS urls (
+                    id BIGSERIAL,
+                    short_code VARCHAR(255) NOT NULL,
+                    original_url TEXT NOT NULL,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    expires_at TIMESTAMP,
+                    click_count INTEGER DEFAULT 0,
+                    custom_alias VARCHAR(255)
+                ) PARTITION BY RANGE (expires_at)
+                """);
+            // The CHECK lets Postgres skip scanning this partition when a new range is attached,
+            // and makes an insert fail loudly rather than land here if its range is missing.
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS urls_permanent PARTITION OF urls
+                (CONSTRAINT urls_permanent_no_expiry CHECK (expires_at IS NULL)) DEFAULT
+                """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS url_codes (
+                    short_code VARCHAR(255) PRIMARY KEY,
+                    expires_at TIMESTAMP
+                )
+                """);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_url_codes_expires_at ON url_codes(expires_at)");
+        }
+        return true;
+    }
+
+    // For offline tools such as the Resharder; the request path only uses hasPartition.
+    void ensurePartition(Shard shard, long expiresAtMillis) throws SQLException {
+        if (expiresAtMillis == URLEntry.NO_EXPIRY) {
+            return;
+        }
+        ensurePartition(shard, storedDate(expiresAtMillis));
+    }
+
+    // Whether the range for this expiry was created ahead of time. Never runs DDL, so clients
+    // can't make a shard create tables (and lock urls) by picking expiry dates.
+    boolean hasPartition(Shard shard, long expiresAtMillis) {
+        if (expiresAtMillis == URLEntry.NO_EXPIRY) {
+            return true;
+        }
+        return knownPartitions.contains(shard.getIndex() + ":" + partitionName(rangeStart(storedDate(expiresAtMillis))));
+    }
+
+    // The local date the driver will store, as ranges are on the zone-less column.
+    private static LocalDate storedDate(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private void ensurePartition(Shard shard, LocalDate day) throws SQLException {
+        LocalDate start = rangeStart(day);
+        String name = partitionName(start);
+        if (knownPartitions.contains(shard.getIndex() + ":" + name)) {
+            return;
+        }
+        shard.write(connection -> {
+            createPartition(connection, start);
+            return null;
+        });
+        knownPartitions.add(shard.getIndex() + ":" + name);
+    }
+
+    void precreate(Shard shard) throws SQLException {
+        LocalDate today = LocalDate.now();
+        for (LocalDate start = rangeStart(today); !start.isAfter(today.plusDays(precreateDays));
+                start = start.plusDays(intervalDays)) {
+            ensurePartition(shard, start);
+        }
+    }
+
+    private void createPartition(Connection connection, LocalDate start) throws SQLException {
+        String sql = "CREATE TABLE IF NOT EXISTS " + partitionName(start) + " PARTITION OF urls FOR VALUES FROM ('"
+            + start + "') TO ('" + start.plusDays(intervalDays) + "')";
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        } catch (SQLException e) {
+            // Another node created it between our IF NOT EXISTS check and the create.
+            if (!"42P07".equals(e.getSQLState())) {
+                throw e;
+            }
+        }
+    }
+
+    // Drops every partition whose whole range lies in the past, releasing its codes and
+    // telling other nodes to forget them, each in its own short transaction.
+    int dropExpired(Shard shard, Invalidator invalidator) throws SQLException {
+        List<String> expired = new ArrayList<>();
+        String listSQL = """
+            SELECT c.relname FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'urls'::regclass AND c.relname LIKE 'urls\\_p%'
+            """;
+        shard.write(connection -> {
+            try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(listSQL)) {
+                while (rs.next()) {
+                    String name = rs.getString(1);
+                    LocalDate end = rangeEnd(name);
+                    if (end != null && !end.isAfter(LocalDate.now())) {
+                        expired.add(name);
+                    }
+                }
+            }
+            return null;
+        });
+
+        int dropped = 0;
+        for (String name : expired) {
+            try (Connection connection = shard.getPrimary().openDedicated()) {
+                connection.setAutoCommit(false);
+                List<String> shortCodes = new ArrayList<>();
+                try (Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT short_code FROM " + name)) {
+                    while (rs.next()) {
+                        shortCodes.add(rs.getString(1));
+                    }
+                }
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "DELETE FROM url_codes WHERE short_code = ANY(?)")) {
+                    Array codes = connection.createArrayOf("varchar", shortCodes.toArray());
+                    pstmt.setArray(1, codes);
+                    pstmt.executeUpdate();
+                }
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("DROP TABLE " + name);
+                }
+                invalidator.publish(connection, shortCodes);
+                connection.commit();
+                knownPartitions.remove(shard.getIndex() + ":" + name);
+                Consumer<List<String>> listener = deletionListener;
+                if (listener != null) {
+                    listener.accept(shortCodes);
+                }
+                dropped += shortCodes.size();
+                System.out.println("Dropped expired partition " + name + " on shard " + shard.getIndex()
+                    + " (" + shortCodes.size() + " links)");
+            }
+        }
+        return dropped;
+    }
+
+    // Hourly: keep the next precreateDays of ranges ready so inserts rarely pay for DDL, and
+    // drop ranges that have fully expired when cleanup is enabled.
+    void startMaintenance(List<Shard> shards, Invalidator invalidator, boolean dropExpired) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            for (Shard shard : shards) {
+                try {
+                    precreate(shard);
+                    if (dropExpired) {
+                        dropExpired(shard, invalidator);
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Partition maintenance failed on shard " + shard.getIndex() + ": "
+                        + e.getMessage());
+                }
+            }
+        }, 1, 60, TimeUnit.MINUTES);
+    }
+
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Ranges are aligned to multiples of the interval counted from the epoch, so every node
+    // computes the same boundaries.
+    LocalDate rangeStart(LocalDate day) {
+        long epochDay = day.toEpochDay();
+        return LocalDate.ofEpochDay(Math.floorDiv(epochDay, intervalDays) * intervalDays);
+    }
+
+    String partitionName(LocalDate start) {
+        return PREFIX + start.format(NAME_FORMAT) + "_" + start.plusDays(intervalDays).format(NAME_FORMAT);
+    }
+
+    static LocalDate rangeEnd(String partitionName) {
+        int separator = partitionName.lastIndexOf('_');
+        if (!partitionName.startsWith(PREFIX) || separator <= PREFIX.length()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partitionName.substring(separator + 1), NAME_FORMAT);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.urlshortener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Interns scheme+host prefixes so cached targets only carry the path part. Ids are
+// never reused; once the dictionary is full new prefixes are simply not shared.
+public class PrefixDictionary {
+    public static final int NONE = -1;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> prefixes;
+
+    public PrefixDictionary(int maxPrefixes) {
+        this.prefixes = new AtomicReferenceArray<>(Math.max(0, maxPrefixes));
+    }
+
+    public int idFor(String prefix) {
+        Integer id = ids.get(prefix);
+        if (id != null) {
+            return id;
+        }
+        if (ids.size() >= prefixes.length()) {
+            return NONE;
+        }
+        synchronized (this) {
+            id = ids.get(prefix);
+            if (id != null) {
+                return id;
+            }
+            int next = ids.size();
+            if (next >= prefixes.length()) {
+                return NONE;
+            }
+            // Publish the prefix before the id so readers never see an id without its value.
+            prefixes.set(next, prefix);
+            ids.put(prefix, next);
+            return next;
+        }
+    }
+
+    public String prefix(int id) {
+        return id == NONE ? "" : prefixes.get(id);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public long estimatedBytes() {
+        long bytes = 16L + 4L * prefixes.length();
+        for (String prefix : ids.keySet()) {
+            // Map node + Integer + String, counted once for every entry that shares it.
+            bytes += 32 + 16 + 40 + prefix.length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,33 @@
+package com.urlshortener;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+// Random eviction for bounded ConcurrentHashMaps without any per-entry bookkeeping. One pass
+// removes each entry with equal odds, so every bucket of the table gives up its share.
+// Simply dropping the first entries in iteration order would always hit the same buckets,
+// whatever their age or use.
+final class RandomEviction {
+    private RandomEviction() {
+    }
+
+    static <K, V> void evict(ConcurrentHashMap<K, V> map, int toEvict, BiConsumer<K, V> onRemoved) {
+        double odds = (double) toEvict / Math.max(1, map.size());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (toEvict > 0 && !map.isEmpty()) {
+            Iterator<Map.Entry<K, V>> it = map.entrySet().iterator();
+            while (toEvict > 0 && it.hasNext()) {
+                Map.Entry<K, V> entry = it.next();
+                if (random.nextDouble() < odds && map.remove(entry.getKey(), entry.getValue())) {
+                    onRemoved.accept(entry.getKey(), entry.getValue());
+                    toEvict--;
+                }
+            }
+            // The sampled pass can fall a few short; top up from the start.
+            odds = 1;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.urlshortener;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimitFilter extends Filter {
+    private final RateLimiter rateLimiter;
+    private final boolean trustForwardedFor;
+
+    public RateLimitFilter(RateLimiter rateLimiter, boolean trustForwardedFor) {
+        this.rateLimiter = rateLimiter;
+        this.trustForwardedFor = trustForwardedFor;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        String client = ClientAddress.resolve(exchange, trustForwardedFor);
+        long waitNanos = rateLimiter.tryAcquire(client);
+
+        if (waitNanos == 0) {
+            chain.doFilter(exchange);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        sendTooManyRequests(exchange, retryAfterSeconds);
+    }
+
+    @Override
+    public String description() {
+        return "Per-client token bucket rate limiting";
+    }
+
+    private void sendTooManyRequests(HttpExchange exchange, long retryAfterSeconds) throws IOException {
+        JSONObject errorResponse = new JSONObject();
+        errorResponse.put("success", false);
+        errorResponse.put("error", "Too many requests");
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+        byte[] responseBytes = errorResponse.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(429, responseBytes.length);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(responseBytes);
+        }
+    }
+}
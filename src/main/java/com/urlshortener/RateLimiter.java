@@ -0,0 +1,137 @@
+package com.urlshortener;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Token buckets kept as one "theoretical arrival time" per client (GCRA), so a
+// decision is a map lookup plus a single CAS.
+public class RateLimiter {
+    private static final int STRIPES = 64;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long emissionIntervalNanos;
+    private final long burstWindowNanos;
+    private final long idleTimeoutNanos;
+    private final int maxEntriesPerStripe;
+    private final LongSupplier clock;
+    private final Stripe[] stripes;
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public RateLimiter(double ratePerSecond, int burst, int maxClients, long idleTimeoutMillis) {
+        this(ratePerSecond, burst, maxClients, idleTimeoutMillis, System::nanoTime);
+    }
+
+    RateLimiter(double ratePerSecond, int burst, int maxClients, long idleTimeoutMillis, LongSupplier clock) {
+        if (ratePerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.burstWindowNanos = emissionIntervalNanos * burst;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.maxEntriesPerStripe = Math.max(1, maxClients / STRIPES);
+        this.clock = clock;
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // Returns 0 when allowed, otherwise nanoseconds until the next token is available.
+    public long tryAcquire(String key) {
+        long now = clock.getAsLong();
+        AtomicLong arrival = stripeFor(key).bucket(key, now);
+
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + emissionIntervalNanos;
+            long ahead = next - now;
+            if (ahead > burstWindowNanos) {
+                rejected.increment();
+                return ahead - burstWindowNanos;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    public int evictIdle() {
+        long now = clock.getAsLong();
+        int evicted = 0;
+        for (Stripe stripe : stripes) {
+            evicted += stripe.evictIdle(now);
+        }
+        return evicted;
+    }
+
+    public long getTrackedClients() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.buckets.mappingCount();
+        }
+        return total;
+    }
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private Stripe stripeFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (STRIPES - 1)];
+    }
+
+    private class Stripe {
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        // Shared by clients that arrive while the stripe is full of active buckets.
+        private final AtomicLong overflow = new AtomicLong(Long.MIN_VALUE / 2);
+        private final AtomicLong lastSweep = new AtomicLong(Long.MIN_VALUE / 2);
+
+        AtomicLong bucket(String key, long now) {
+            AtomicLong existing = buckets.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            if (buckets.size() >= maxEntriesPerStripe && sweepIfDue(now) == 0) {
+                return overflow;
+            }
+            AtomicLong created = new AtomicLong(now - burstWindowNanos);
+            existing = buckets.putIfAbsent(key, created);
+            return existing != null ? existing : created;
+        }
+
+        // Full stripes are swept at most once per second so new clients don't pay for a scan each time.
+        int sweepIfDue(long now) {
+            long last = lastSweep.get();
+            if (now - last < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet(last, now)) {
+                return 0;
+            }
+            return evictIdle(now);
+        }
+
+        int evictIdle(long now) {
+            int evicted = 0;
+            Iterator<Map.Entry<String, AtomicLong>> it = buckets.entrySet().iterator();
+            while (it.hasNext()) {
+                // A bucket whose arrival time is this far in the past is full and unused.
+                if (now - it.next().getValue().get() > idleTimeoutNanos) {
+                    it.remove();
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+    }
+}
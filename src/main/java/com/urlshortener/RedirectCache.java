@@ -0,0 +1,139 @@
+package com.urlshortener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+public class RedirectCache implements InvalidationListener.Subscriber {
+    // Map node plus the key String and its backing array, on top of the record itself.
+    private static final int PER_ENTRY_OVERHEAD = 32 + 24 + 16;
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final ConcurrentHashMap<String, CompactRedirect> entries = new ConcurrentHashMap<>();
+    private final PrefixDictionary prefixes;
+    private final int maxEntries;
+    private final LongAdder storedBytes = new LongAdder();
+    // Bumped by invalidations of the codes hashing to each stripe, so a load that raced with
+    // one doesn't re-insert stale data while loads of unrelated codes carry on.
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public RedirectCache(int maxEntries, int maxPrefixes) {
+        this.maxEntries = maxEntries;
+        this.prefixes = new PrefixDictionary(maxPrefixes);
+    }
+
+    public CompactRedirect get(String shortCode) {
+        CompactRedirect entry = entries.get(shortCode);
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return entry;
+    }
+
+    public long beginLoad(String shortCode) {
+        return generations.get(stripe(shortCode));
+    }
+
+    public void put(String shortCode, URLEntry entry, long loadGeneration) {
+        put(shortCode, RedirectTarget.from(entry), loadGeneration);
+    }
+
+    public void put(String shortCode, RedirectTarget target, long loadGeneration) {
+        if (maxEntries <= 0 || generations.get(stripe(shortCode)) != loadGeneration) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evictSome();
+        }
+        store(shortCode, CompactRedirect.of(shortCode, target, prefixes));
+    }
+
+    // Used when loading a snapshot; these entries are served straight away and checked later.
+    public boolean restore(String key, String originalUrl, long expiresAtEpochSeconds, String shortCode) {
+        if (entries.size() >= maxEntries) {
+            return false;
+        }
+        store(key, CompactRedirect.restore(originalUrl, expiresAtEpochSeconds, shortCode, prefixes));
+        return true;
+    }
+
+    private void store(String shortCode, CompactRedirect compact) {
+        storedBytes.add(sizeOf(shortCode, compact));
+        forget(shortCode, entries.put(shortCode, compact));
+    }
+
+    public void forEach(BiConsumer<String, CompactRedirect> action) {
+        entries.forEach(action);
+    }
+
+    public String getOriginalUrl(CompactRedirect entry) {
+        return entry.getOriginalUrl(prefixes);
+    }
+
+    @Override
+    public void invalidate(List<String> shortCodes) {
+        for (String shortCode : shortCodes) {
+            generations.incrementAndGet(stripe(shortCode));
+            forget(shortCode, entries.remove(shortCode));
+        }
+        invalidations.add(shortCodes.size());
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        for (String shortCode : entries.keySet()) {
+            forget(shortCode, entries.remove(shortCode));
+        }
+        invalidations.increment();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evictSome() {
+        RandomEviction.evict(entries, Math.max(1, maxEntries / 20), this::forget);
+    }
+
+    private static int stripe(String shortCode) {
+        int h = shortCode.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private void forget(String shortCode, CompactRedirect removed) {
+        if (removed != null) {
+            storedBytes.add(-sizeOf(shortCode, removed));
+        }
+    }
+
+    private static int sizeOf(String shortCode, CompactRedirect entry) {
+        return PER_ENTRY_OVERHEAD + CompactRedirect.align(shortCode.length()) + entry.estimatedBytes();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        int size = entries.size();
+        long bytes = storedBytes.sum() + prefixes.estimatedBytes();
+        metrics.put("size", size);
+        metrics.put("maxEntries", maxEntries);
+        metrics.put("hits", hits.sum());
+        metrics.put("misses", misses.sum());
+        metrics.put("invalidations", invalidations.sum());
+        metrics.put("prefixes", prefixes.size());
+        metrics.put("estimatedBytes", bytes);
+        metrics.put("bytesPerEntry", size > 0 ? bytes / size : 0);
+        return metrics;
+    }
+}
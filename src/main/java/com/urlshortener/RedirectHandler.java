@@ -9,9 +9,17 @@ import java.nio.charset.StandardCharsets;
 
 public class RedirectHandler implements HttpHandler {
     private final URLShortenerService urlService;
+    private final boolean trustForwardedFor;
+    private final String countryHeader;
 
     public RedirectHandler(URLShortenerService urlService) {
+        this(urlService, false, null);
+    }
+
+    public RedirectHandler(URLShortenerService urlService, boolean trustForwardedFor, String countryHeader) {
         this.urlService = urlService;
+        this.trustForwardedFor = trustForwardedFor;
+        this.countryHeader = countryHeader;
     }
 
     @Override
@@ -32,7 +40,11 @@ public class RedirectHandler implements HttpHandler {
                 return;
             }
 
-            URLShortenerService.RedirectResult result = urlService.redirect(shortCode);
+            String userAgent = exchange.getRequestHeaders().getFirst("User-Agent");
+            String visitor = ClientAddress.resolve(exchange, trustForwardedFor) + "\n"
+                + (userAgent != null ? userAgent : "");
+            URLShortenerService.RedirectResult result = urlService.redirect(shortCode, visitor,
+                ClickDimensions.from(exchange, countryHeader));
 
             if (result.isSuccess()) {
                 exchange.getResponseHeaders().set("Location", result.getRedirectUrl());
@@ -0,0 +1,166 @@
+package com.urlshortener;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+// Binary dump of the redirect cache so a restart can skip most of the warm-up.
+//
+// Layout: magic, version, created-at millis, entry count, then per entry
+//   key (u16 length + UTF-8), short code (u16 length + UTF-8, 0 = same as key),
+//   target (i32 length + UTF-8), expiry epoch seconds (i64, 0 = none),
+// followed by a CRC32C of everything before it.
+public class RedirectSnapshot {
+    static final int MAGIC = 0x55524c53; // "URLS"
+    // 2: expiries are real epoch seconds; version 1 stored zone-less local time as UTC.
+    static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+
+    private RedirectSnapshot() {}
+
+    public static int write(Path path, RedirectCache cache) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        int[] count = {0};
+        // The count is only known after iterating, so it is written into the header afterwards.
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_BYTES);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(nonClosing(channel), 1 << 16));
+            IOException[] failure = {null};
+            cache.forEach((key, entry) -> {
+                if (failure[0] != null || entry.isExpired()) {
+                    return;
+                }
+                try {
+                    writeShortString(out, key);
+                    writeShortString(out, entry.getAliasedShortCode() != null ? entry.getAliasedShortCode() : "");
+                    byte[] url = cache.getOriginalUrl(entry).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(url.length);
+                    out.write(url);
+                    out.writeLong(entry.getExpiresAtEpochSeconds());
+                    count[0]++;
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis()).putInt(count[0]).flip();
+            CRC32C crc = new CRC32C();
+            crc.update(header.duplicate());
+            // The header is only final now, so the body is checksummed from the page cache afterwards.
+            MappedByteBuffer body = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                channel.size() - HEADER_BYTES);
+            crc.update(body);
+            channel.write(header, 0);
+
+            ByteBuffer trailer = ByteBuffer.allocate(8).putLong(crc.getValue());
+            trailer.flip();
+            channel.write(trailer, channel.size());
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count[0];
+    }
+
+    // Returns the number of entries restored, or -1 when the file was missing, stale or corrupt.
+    public static int load(Path path, RedirectCache cache, long maxAgeMillis) throws IOException {
+        if (!Files.exists(path)) {
+            return -1;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 8 || size > Integer.MAX_VALUE) {
+                System.err.println("Ignoring snapshot " + path + ": unexpected size " + size);
+                return -1;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                System.err.println("Ignoring snapshot " + path + ": unknown format");
+                return -1;
+            }
+            long ageMillis = System.currentTimeMillis() - buffer.getLong(8);
+            if (ageMillis > maxAgeMillis) {
+                System.out.println("Ignoring snapshot " + path + ": " + (ageMillis / 1000) + "s old");
+                return -1;
+            }
+
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.duplicate().limit((int) size - 8));
+            if (crc.getValue() != buffer.getLong((int) size - 8)) {
+                System.err.println("Ignoring snapshot " + path + ": checksum mismatch");
+                return -1;
+            }
+
+            int count = buffer.getInt(16);
+            int restored = 0;
+            long nowSeconds = CoarseClock.millis() / 1000;
+            buffer.position(HEADER_BYTES).limit((int) size - 8);
+            for (int i = 0; i < count; i++) {
+                String key = readShortString(buffer);
+                String shortCode = readShortString(buffer);
+                byte[] url = new byte[buffer.getInt()];
+                buffer.get(url);
+                long expiresAt = buffer.getLong();
+                if (expiresAt != 0 && expiresAt < nowSeconds) {
+                    continue;
+                }
+                if (cache.restore(key, new String(url, StandardCharsets.UTF_8), expiresAt,
+                        shortCode.isEmpty() ? null : shortCode)) {
+                    restored++;
+                }
+            }
+            return restored;
+        }
+    }
+
+    private static void writeShortString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readShortString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static OutputStream nonClosing(FileChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer src = ByteBuffer.wrap(b, off, len);
+                while (src.hasRemaining()) {
+                    channel.write(src);
+                }
+            }
+        };
+    }
+}
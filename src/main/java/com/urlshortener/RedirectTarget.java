@@ -0,0 +1,34 @@
+package com.urlshortener;
+
+// The columns a redirect needs, without the rest of the row. expiresAt is epoch millis.
+public class RedirectTarget {
+    private final String shortCode;
+    private final String originalUrl;
+    private final long expiresAt;
+
+    public RedirectTarget(String shortCode, String originalUrl, long expiresAt) {
+        this.shortCode = shortCode;
+        this.originalUrl = originalUrl;
+        this.expiresAt = expiresAt;
+    }
+
+    public static RedirectTarget from(URLEntry entry) {
+        return new RedirectTarget(entry.getShortCode(), entry.getOriginalUrl(), entry.getExpiresAtMillis());
+    }
+
+    public String getShortCode() {
+        return shortCode;
+    }
+
+    public String getOriginalUrl() {
+        return originalUrl;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAt;
+    }
+
+    public boolean isExpired() {
+        return expiresAt != URLEntry.NO_EXPIRY && CoarseClock.millis() > expiresAt;
+    }
+}
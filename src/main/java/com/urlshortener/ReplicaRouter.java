@@ -0,0 +1,181 @@
+package com.urlshortener;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ReplicaRouter {
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    // Lag is zero when the replica has replayed everything it received, otherwise the
+    // age of the last replayed transaction. Returns 0 on a primary (no replay timestamp).
+    private static final String LAG_SQL = """
+        SELECT CASE
+            WHEN pg_last_wal_receive_lsn() IS NULL OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+            ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0)
+        END
+        """;
+
+    public enum Selection {
+        ROUND_ROBIN,
+        LEAST_LATENCY
+    }
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Selection selection;
+    private final long maxLagMillis;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final LongAdder fallbacks = new LongAdder();
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRouter(List<DatabaseConnection> connections, Selection selection,
+                         long maxLagMillis, long healthCheckIntervalMillis) {
+        for (DatabaseConnection connection : connections) {
+            replicas.add(new Replica(connection));
+        }
+        this.selection = selection;
+        this.maxLagMillis = maxLagMillis;
+
+        if (replicas.isEmpty()) {
+            this.healthChecker = null;
+        } else {
+            this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkHealth();
+            healthChecker.scheduleWithFixedDelay(this::checkHealth,
+                healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    // Runs the query on a healthy replica, falling back to the primary when none is
+    // usable or the replica read fails.
+    public <T> T read(SqlFunction<T> query, DatabaseConnection primary) throws SQLException {
+        Replica replica = select();
+        if (replica != null) {
+            long start = System.nanoTime();
+            try {
+                T value = query.apply(replica.connection.get());
+                replica.recordLatency(System.nanoTime() - start);
+                replica.reads.increment();
+                return value;
+            } catch (SQLException e) {
+                System.err.println("Warning: Read from " + replica.connection.getName() + " failed, using primary: " + e.getMessage());
+                replica.healthy = false;
+                replica.connection.reset();
+            }
+        }
+
+        if (!replicas.isEmpty()) {
+            fallbacks.increment();
+        }
+        return query.apply(primary.get());
+    }
+
+    private Replica select() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+
+        if (selection == Selection.LEAST_LATENCY) {
+            Replica best = null;
+            for (Replica replica : replicas) {
+                if (replica.healthy && (best == null || replica.latencyNanos < best.latencyNanos)) {
+                    best = replica;
+                }
+            }
+            return best;
+        }
+
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    void checkHealth() {
+        for (Replica replica : replicas) {
+            try {
+                Connection connection = replica.connection.get();
+                try (Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery(LAG_SQL)) {
+                    long lag = rs.next() ? rs.getLong(1) : 0;
+                    replica.lagMillis = lag;
+                    boolean healthy = lag <= maxLagMillis;
+                    if (healthy != replica.healthy) {
+                        System.out.println((healthy ? "Replica recovered: " : "Replica lagging: ")
+                            + replica.connection.getName() + " (lag " + lag + "ms)");
+                    }
+                    replica.healthy = healthy;
+                }
+            } catch (SQLException e) {
+                if (replica.healthy) {
+                    System.err.println("Warning: Replica " + replica.connection.getName() + " unavailable: " + e.getMessage());
+                }
+                replica.healthy = false;
+                replica.connection.reset();
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("primaryFallbacks", fallbacks.sum());
+        for (Replica replica : replicas) {
+            Map<String, Object> replicaMetrics = new LinkedHashMap<>();
+            replicaMetrics.put("healthy", replica.healthy);
+            replicaMetrics.put("lagMillis", replica.lagMillis);
+            replicaMetrics.put("latencyMicros", (long) (replica.latencyNanos / 1000));
+            replicaMetrics.put("reads", replica.reads.sum());
+            metrics.put(replica.connection.getName(), replicaMetrics);
+        }
+        return metrics;
+    }
+
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.connection.reset();
+        }
+    }
+
+    private static class Replica {
+        private final DatabaseConnection connection;
+        private final LongAdder reads = new LongAdder();
+        private volatile boolean healthy = true;
+        private volatile long lagMillis;
+        private volatile double latencyNanos;
+
+        Replica(DatabaseConnection connection) {
+            this.connection = connection;
+        }
+
+        void recordLatency(long nanos) {
+            double current = latencyNanos;
+            latencyNanos = current == 0 ? nanos : current + LATENCY_SMOOTHING * (nanos - current);
+        }
+    }
+}
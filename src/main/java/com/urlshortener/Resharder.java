@@ -0,0 +1,304 @@
+package com.urlshortener;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Moves rows to the shard that db.shard.count places them on. Safe to run while the
+// service is serving traffic with db.shard.previous.count set to the old count: each
+// batch is deleted from the source inside a transaction that only commits after the
+// rows are durable on the target, so a row is always visible in at least one place.
+public class Resharder {
+    private static final int BATCH_SIZE = 500;
+
+    private static final String SCAN_SQL = "SELECT id, short_code, expires_at FROM urls WHERE id > ? ORDER BY id LIMIT ?";
+    // The %s placeholders take url_hash when deduplication is on, so moved links keep
+    // deduplicating.
+    private static final String DELETE_SQL = """
+        DELETE FROM urls WHERE id = ANY(?)
+        RETURNING short_code, original_url, created_at, expires_at, click_count, custom_alias%s
+        """;
+    private static final String INSERT_SQL = """
+        INSERT INTO urls (short_code, original_url, created_at, expires_at, click_count, custom_alias%s)
+        VALUES (?, ?, ?, ?, ?, ?%s)
+        ON CONFLICT (short_code) DO UPDATE SET click_count = GREATEST(urls.click_count, EXCLUDED.click_count)
+        """;
+    // A partitioned urls has no unique constraint on short_code; codes are unique in url_codes
+    // instead. The row goes in only when the target claims its code, as in saveURL, and a
+    // code the target already holds (from an interrupted run) just has its clicks merged.
+    private static final String PARTITIONED_INSERT_SQL = """
+        WITH claimed AS (
+            INSERT INTO url_codes (short_code, expires_at) VALUES (?, ?)
+            ON CONFLICT DO NOTHING
+            RETURNING short_code
+        ), inserted AS (
+            INSERT INTO urls (short_code, original_url, created_at, expires_at, click_count, custom_alias%s)
+            SELECT ?::varchar, ?::text, ?::timestamp, ?::timestamp, ?::integer, ?::varchar%s FROM claimed
+        )
+        UPDATE urls SET click_count = GREATEST(urls.click_count, ?)
+        WHERE short_code = ? AND NOT EXISTS (SELECT 1 FROM claimed)
+        """;
+    private static final String RELEASE_CODES_SQL = "DELETE FROM url_codes WHERE short_code = ANY(?)";
+    // Per-link analytics follow their link. Sketch merges are idempotent; breakdown counts
+    // add up with whatever the target shard already recorded under the new placement.
+    private static final String DELETE_VISITORS_SQL = """
+        DELETE FROM url_visitors WHERE short_code = ANY(?)
+        RETURNING short_code, bucket_day, sketch
+        """;
+    private static final String INSERT_VISITORS_SQL = """
+        INSERT INTO url_visitors (short_code, bucket_day, sketch) VALUES (?, ?, ?)
+        ON CONFLICT (short_code, bucket_day) DO UPDATE SET sketch = hll_merge(url_visitors.sketch, EXCLUDED.sketch)
+        """;
+    // Dimension value ids are per shard, so rows travel with the value and are re-interned.
+    private static final String DELETE_BREAKDOWNS_SQL = """
+        DELETE FROM click_breakdowns b USING dimension_values d
+        WHERE b.value_id = d.id AND b.short_code = ANY(?)
+        RETURNING b.short_code, b.dimension, b.hour, d.value, b.clicks
+        """;
+    private static final String INTERN_VALUE_SQL = """
+        INSERT INTO dimension_values (dimension, value) VALUES (?, ?)
+        ON CONFLICT (dimension, value) DO NOTHING
+        """;
+    private static final String INSERT_BREAKDOWNS_SQL = """
+        INSERT INTO click_breakdowns (short_code, dimension, hour, value_id, clicks)
+        SELECT ?, ?, ?, id, ? FROM dimension_values WHERE dimension = ? AND value = ?
+        ON CONFLICT (short_code, dimension, hour, value_id) DO UPDATE SET clicks = click_breakdowns.clicks + EXCLUDED.clicks
+        """;
+
+    private final URLDatabase database;
+    private final PartitionManager partitions;
+    private final boolean withHash;
+    private final String deleteSQL;
+    private final String insertSQL;
+
+    public Resharder(URLDatabase database) {
+        this.database = database;
+        this.partitions = database.getPartitions();
+        this.withHash = database.storesUrlHash();
+        this.deleteSQL = String.format(DELETE_SQL, withHash ? ", url_hash" : "");
+        this.insertSQL = partitions != null
+            ? String.format(PARTITIONED_INSERT_SQL, withHash ? ", url_hash" : "", withHash ? ", ?::bytea" : "")
+            : String.format(INSERT_SQL, withHash ? ", url_hash" : "", withHash ? ", ?" : "");
+    }
+
+    public long run() throws SQLException {
+        List<Shard> shards = database.getShards();
+        System.out.println("Resharding " + shards.size() + " configured shards to " + database.getShardCount() + " active shards");
+
+        long totalMoved = 0;
+        for (Shard source : shards) {
+            long moved = drain(source);
+            System.out.println("Shard " + source.getIndex() + ": moved " + moved + " rows");
+            totalMoved += moved;
+        }
+
+        System.out.println("Resharding complete: moved " + totalMoved + " rows");
+        return totalMoved;
+    }
+
+    private long drain(Shard source) throws SQLException {
+        Connection connection = source.getPrimary().get();
+        boolean hasVisitors = tableExists(connection, "url_visitors");
+        boolean hasBreakdowns = tableExists(connection, "click_breakdowns");
+        long lastId = 0;
+        long moved = 0;
+
+        while (true) {
+            Map<Shard, List<Long>> moves = new HashMap<>();
+            int scanned = 0;
+
+            try (PreparedStatement pstmt = connection.prepareStatement(SCAN_SQL)) {
+                pstmt.setLong(1, lastId);
+                pstmt.setInt(2, BATCH_SIZE);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        scanned++;
+                        lastId = rs.getLong("id");
+                        Shard target = database.shardFor(rs.getString("short_code"));
+                        if (target != source) {
+                            moves.computeIfAbsent(target, s -> new ArrayList<>()).add(lastId);
+                            // Outside the move's transaction; an offline run can afford the DDL.
+                            Timestamp expiresAt = rs.getTimestamp("expires_at");
+                            if (partitions != null && expiresAt != null) {
+                                partitions.ensurePartition(target, expiresAt.getTime());
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (scanned == 0) {
+                return moved;
+            }
+
+            for (Map.Entry<Shard, List<Long>> move : moves.entrySet()) {
+                moved += moveBatch(source, move.getKey(), move.getValue(), hasVisitors, hasBreakdowns);
+            }
+
+            if (moved > 0 && scanned == BATCH_SIZE) {
+                System.out.println("Shard " + source.getIndex() + ": " + moved + " rows moved so far (last id " + lastId + ")");
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    // The links, their claimed codes and their analytics are deleted in one source
+    // transaction, which commits only after the target transaction holding all of them has.
+    private int moveBatch(Shard source, Shard target, List<Long> ids, boolean hasVisitors,
+                          boolean hasBreakdowns) throws SQLException {
+        Connection sourceConnection = source.getPrimary().get();
+        Connection targetConnection = target.getPrimary().get();
+
+        sourceConnection.setAutoCommit(false);
+        targetConnection.setAutoCommit(false);
+        try {
+            int count = 0;
+            List<String> codes = new ArrayList<>();
+            Array idArray = sourceConnection.createArrayOf("bigint", ids.toArray());
+
+            try (PreparedStatement delete = sourceConnection.prepareStatement(deleteSQL);
+                 PreparedStatement insert = targetConnection.prepareStatement(insertSQL)) {
+                delete.setArray(1, idArray);
+                try (ResultSet rs = delete.executeQuery()) {
+                    while (rs.next()) {
+                        String shortCode = rs.getString("short_code");
+                        codes.add(shortCode);
+                        int index = 1;
+                        if (partitions != null) {
+                            insert.setString(index++, shortCode);
+                            insert.setTimestamp(index++, rs.getTimestamp("expires_at"));
+                        }
+                        insert.setString(index++, shortCode);
+                        insert.setString(index++, rs.getString("original_url"));
+                        insert.setTimestamp(index++, rs.getTimestamp("created_at"));
+                        insert.setTimestamp(index++, rs.getTimestamp("expires_at"));
+                        insert.setInt(index++, rs.getInt("click_count"));
+                        insert.setString(index++, rs.getString("custom_alias"));
+                        if (withHash) {
+                            insert.setBytes(index++, rs.getBytes("url_hash"));
+                        }
+                        if (partitions != null) {
+                            insert.setInt(index++, rs.getInt("click_count"));
+                            insert.setString(index, shortCode);
+                        }
+                        insert.addBatch();
+                        count++;
+                    }
+                }
+                if (count > 0) {
+                    insert.executeBatch();
+                }
+            }
+
+            if (!codes.isEmpty()) {
+                Array codeArray = sourceConnection.createArrayOf("varchar", codes.toArray());
+                if (partitions != null) {
+                    try (PreparedStatement release = sourceConnection.prepareStatement(RELEASE_CODES_SQL)) {
+                        release.setArray(1, codeArray);
+                        release.executeUpdate();
+                    }
+                }
+                if (hasVisitors) {
+                    moveVisitors(sourceConnection, targetConnection, codeArray);
+                }
+                if (hasBreakdowns) {
+                    moveBreakdowns(sourceConnection, targetConnection, codeArray);
+                }
+            }
+
+            targetConnection.commit();
+            sourceConnection.commit();
+            return count;
+        } catch (SQLException e) {
+            targetConnection.rollback();
+            sourceConnection.rollback();
+            throw e;
+        } finally {
+            targetConnection.setAutoCommit(true);
+            sourceConnection.setAutoCommit(true);
+        }
+    }
+
+    private void moveVisitors(Connection sourceConnection, Connection targetConnection, Array codes)
+            throws SQLException {
+        try (PreparedStatement delete = sourceConnection.prepareStatement(DELETE_VISITORS_SQL);
+             PreparedStatement insert = targetConnection.prepareStatement(INSERT_VISITORS_SQL)) {
+            delete.setArray(1, codes);
+            int rows = 0;
+            try (ResultSet rs = delete.executeQuery()) {
+                while (rs.next()) {
+                    insert.setString(1, rs.getString("short_code"));
+                    insert.setDate(2, rs.getDate("bucket_day"));
+                    insert.setBytes(3, rs.getBytes("sketch"));
+                    insert.addBatch();
+                    rows++;
+                }
+            }
+            if (rows > 0) {
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private void moveBreakdowns(Connection sourceConnection, Connection targetConnection, Array codes)
+            throws SQLException {
+        try (PreparedStatement delete = sourceConnection.prepareStatement(DELETE_BREAKDOWNS_SQL);
+             PreparedStatement intern = targetConnection.prepareStatement(INTERN_VALUE_SQL);
+             PreparedStatement insert = targetConnection.prepareStatement(INSERT_BREAKDOWNS_SQL)) {
+            delete.setArray(1, codes);
+            int rows = 0;
+            try (ResultSet rs = delete.executeQuery()) {
+                while (rs.next()) {
+                    short dimension = rs.getShort("dimension");
+                    String value = rs.getString("value");
+                    intern.setShort(1, dimension);
+                    intern.setString(2, value);
+                    intern.addBatch();
+
+                    insert.setString(1, rs.getString("short_code"));
+                    insert.setShort(2, dimension);
+                    insert.setTimestamp(3, rs.getTimestamp("hour"));
+                    insert.setLong(4, rs.getLong("clicks"));
+                    insert.setShort(5, dimension);
+                    insert.setString(6, value);
+                    insert.addBatch();
+                    rows++;
+                }
+            }
+            if (rows > 0) {
+                intern.executeBatch();
+                insert.executeBatch();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            URLDatabase database = new URLDatabase();
+            try {
+                new Resharder(database).run();
+            } finally {
+                database.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("Resharding failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
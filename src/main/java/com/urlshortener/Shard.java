@@ -0,0 +1,109 @@
+package com.urlshortener;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class Shard {
+    private static final int MAX_TRACKED_WRITES = 10000;
+
+    private final int index;
+    private final DatabaseConnection primary;
+    private final ReplicaRouter replicas;
+    private final long readYourWritesNanos;
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+    private volatile DatabaseLatencyListener latencyListener;
+
+    public Shard(int index, DatabaseConnection primary, ReplicaRouter replicas, long readYourWritesMillis) {
+        this.index = index;
+        this.primary = primary;
+        this.replicas = replicas;
+        this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMillis);
+    }
+
+    // Reads of a code written by this node within the read-your-writes window go to the
+    // primary so a freshly created link never 404s because a replica hasn't caught up.
+    public <T> T read(String key, SqlFunction<T> query) throws SQLException {
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result;
+            if (key != null && isRecentlyWritten(key)) {
+                result = query.apply(primary.get());
+            } else {
+                result = replicas.read(query, primary);
+            }
+            failed = false;
+            return result;
+        } finally {
+            recordLatency(started, failed);
+        }
+    }
+
+    public <T> T write(SqlFunction<T> operation) throws SQLException {
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = operation.apply(primary.get());
+            failed = false;
+            return result;
+        } finally {
+            recordLatency(started, failed);
+        }
+    }
+
+    public void setLatencyListener(DatabaseLatencyListener latencyListener) {
+        this.latencyListener = latencyListener;
+    }
+
+    private void recordLatency(long started, boolean failed) {
+        DatabaseLatencyListener listener = latencyListener;
+        if (listener != null) {
+            listener.onDatabaseCall(System.nanoTime() - started, failed);
+        }
+    }
+
+    public void recordWrite(String key) {
+        if (!replicas.hasReplicas() || key == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (recentWrites.size() >= MAX_TRACKED_WRITES) {
+            recentWrites.values().removeIf(until -> until - now < 0);
+        }
+        recentWrites.put(key, now + readYourWritesNanos);
+    }
+
+    private boolean isRecentlyWritten(String key) {
+        Long until = recentWrites.get(key);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() < 0) {
+            recentWrites.remove(key, until);
+            return false;
+        }
+        return true;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public DatabaseConnection getPrimary() {
+        return primary;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("replicas", replicas.getMetrics());
+        return metrics;
+    }
+
+    public void close() throws SQLException {
+        replicas.close();
+        primary.close();
+    }
+}
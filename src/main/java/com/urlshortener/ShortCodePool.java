@@ -0,0 +1,136 @@
+package com.urlshortener;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Random codes reserved in bulk ahead of time, so shortenUrl can take a code that is
+// already known to be free without its own existence check.
+public class ShortCodePool {
+
+    public interface Reserver {
+        List<String> reserve(List<String> candidates) throws SQLException;
+    }
+
+    private final ConcurrentLinkedQueue<String> codes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final Reserver reserver;
+    private final int codeLength;
+    private final int capacity;
+    private final int lowWatermark;
+    private final int batchSize;
+    private final ExecutorService filler;
+    private final LongAdder served = new LongAdder();
+    private final LongAdder starved = new LongAdder();
+    private final LongAdder starvedNanos = new LongAdder();
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder rejectedCandidates = new LongAdder();
+    private volatile boolean closed;
+
+    public ShortCodePool(Reserver reserver, int codeLength, int capacity, int lowWatermark, int batchSize) {
+        this.reserver = reserver;
+        this.codeLength = codeLength;
+        this.capacity = capacity;
+        this.lowWatermark = lowWatermark;
+        this.batchSize = batchSize;
+        this.filler = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "short-code-pool-filler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        requestRefill();
+    }
+
+    // Returns null when the pool is empty; the caller should generate a code the slow
+    // way and report the time the unchecked insert took through recordStarvation.
+    public String poll() {
+        String code = codes.poll();
+        if (code == null) {
+            starved.increment();
+            requestRefill();
+            return null;
+        }
+
+        served.increment();
+        if (depth.decrementAndGet() < lowWatermark) {
+            requestRefill();
+        }
+        return code;
+    }
+
+    public void recordStarvation(long nanos) {
+        starvedNanos.add(nanos);
+    }
+
+    private void requestRefill() {
+        if (!closed && refilling.compareAndSet(false, true)) {
+            filler.execute(this::refill);
+        }
+    }
+
+    private void refill() {
+        try {
+            while (!closed && depth.get() < capacity) {
+                List<String> candidates = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    candidates.add(Base62Encoder.generateRandomCode(codeLength));
+                }
+
+                List<String> granted = reserver.reserve(candidates);
+                reserved.add(granted.size());
+                rejectedCandidates.add(candidates.size() - granted.size());
+                codes.addAll(granted);
+                depth.addAndGet(granted.size());
+
+                if (granted.isEmpty()) {
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Warning: Failed to refill short code pool: " + e.getMessage());
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    // Hands back every unused code so the caller can release its reservation.
+    public List<String> close() {
+        closed = true;
+        filler.shutdownNow();
+        try {
+            filler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<String> unused = new ArrayList<>();
+        String code;
+        while ((code = codes.poll()) != null) {
+            unused.add(code);
+        }
+        depth.set(0);
+        return unused;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("depth", depth.get());
+        metrics.put("capacity", capacity);
+        metrics.put("served", served.sum());
+        metrics.put("reserved", reserved.sum());
+        metrics.put("rejectedCandidates", rejectedCandidates.sum());
+        metrics.put("starved", starved.sum());
+        metrics.put("starvedMillis", TimeUnit.NANOSECONDS.toMillis(starvedNanos.sum()));
+        return metrics;
+    }
+}
@@ -8,24 +8,38 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ShortenHandler implements HttpHandler {
     private final URLShortenerService urlService;
     private final String baseUrl;
+    private final IdempotencyCache idempotencyCache;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final long IDEMPOTENT_WAIT_MILLIS = 10000;
 
     public ShortenHandler(URLShortenerService urlService, String baseUrl) {
+        this(urlService, baseUrl, null);
+    }
+
+    public ShortenHandler(URLShortenerService urlService, String baseUrl, IdempotencyCache idempotencyCache) {
         this.urlService = urlService;
         this.baseUrl = baseUrl;
+        this.idempotencyCache = idempotencyCache;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
         exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Idempotency-Key");
 
         String method = exchange.getRequestMethod();
 
@@ -42,6 +56,51 @@ public class ShortenHandler implements HttpHandler {
 
         try {
             String requestBody = readRequestBody(exchange);
+            String idempotencyKey = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+
+            if (idempotencyKey == null || idempotencyKey.isBlank() || idempotencyCache == null) {
+                IdempotencyCache.Response response = shorten(requestBody);
+                sendResponse(exchange, response.getStatus(), response.getBody());
+                return;
+            }
+            if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                sendErrorResponse(exchange, 400, "Idempotency-Key is too long");
+                return;
+            }
+
+            AtomicReference<IdempotencyCache.Response> serverError = new AtomicReference<>();
+            IdempotencyCache.Outcome outcome = idempotencyCache.execute(idempotencyKey, fingerprint(requestBody),
+                IDEMPOTENT_WAIT_MILLIS, () -> {
+                    IdempotencyCache.Response response = shorten(requestBody);
+                    if (response.getStatus() < 500) {
+                        return response;
+                    }
+                    // Server errors are worth retrying, so they are not remembered, but this
+                    // caller still gets the same answer as without an Idempotency-Key.
+                    serverError.set(response);
+                    return null;
+                });
+            if (outcome.getResponse() == null) {
+                sendResponse(exchange, serverError.get().getStatus(), serverError.get().getBody());
+                return;
+            }
+            if (outcome.isReplayed()) {
+                exchange.getResponseHeaders().set("Idempotent-Replayed", "true");
+            }
+            sendResponse(exchange, outcome.getResponse().getStatus(), outcome.getResponse().getBody());
+
+        } catch (IdempotencyCache.KeyReuseException e) {
+            sendErrorResponse(exchange, 422, e.getMessage());
+        } catch (IdempotencyCache.InProgressException e) {
+            sendErrorResponse(exchange, 409, e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            sendErrorResponse(exchange, 500, "Internal server error: " + e.getMessage());
+        }
+    }
+
+    private IdempotencyCache.Response shorten(String requestBody) {
+        try {
             JSONObject jsonRequest = new JSONObject(requestBody);
 
             String originalUrl = jsonRequest.optString("url", "");
@@ -49,17 +108,16 @@ public class ShortenHandler implements HttpHandler {
             String expiryDateStr = jsonRequest.optString("expiresAt", null);
 
             if (originalUrl.isEmpty()) {
-                sendErrorResponse(exchange, 400, "URL is required");
-                return;
+                return errorResponse(400, "URL is required");
             }
 
-            LocalDateTime expiresAt = null;
+            long expiresAt = URLEntry.NO_EXPIRY;
             if (expiryDateStr != null && !expiryDateStr.trim().isEmpty()) {
                 try {
-                    expiresAt = LocalDateTime.parse(expiryDateStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+                    expiresAt = LocalDateTime.parse(expiryDateStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                        .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
                 } catch (DateTimeParseException e) {
-                    sendErrorResponse(exchange, 400, "Invalid expiry date format. Use ISO format: yyyy-MM-ddTHH:mm:ss");
-                    return;
+                    return errorResponse(400, "Invalid expiry date format. Use ISO format: yyyy-MM-ddTHH:mm:ss");
                 }
             }
 
@@ -71,23 +129,36 @@ public class ShortenHandler implements HttpHandler {
                 response.put("shortUrl", baseUrl + "/u/" + result.getUrlEntry().getShortCode());
                 response.put("shortCode", result.getUrlEntry().getShortCode());
                 response.put("originalUrl", result.getUrlEntry().getOriginalUrl());
-                response.put("createdAt", result.getUrlEntry().getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                response.put("createdAt", formatTimestamp(result.getUrlEntry().getCreatedAtMillis()));
                 
-                if (result.getUrlEntry().getExpiresAt() != null) {
-                    response.put("expiresAt", result.getUrlEntry().getExpiresAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                if (result.getUrlEntry().hasExpiry()) {
+                    response.put("expiresAt", formatTimestamp(result.getUrlEntry().getExpiresAtMillis()));
                 }
 
-                sendResponse(exchange, 200, response.toString());
+                return new IdempotencyCache.Response(200, response.toString());
             } else {
-                sendErrorResponse(exchange, 400, result.getMessage());
+                return errorResponse(400, result.getMessage());
             }
 
         } catch (Exception e) {
             e.printStackTrace();
-            sendErrorResponse(exchange, 500, "Internal server error: " + e.getMessage());
+            return errorResponse(500, "Internal server error: " + e.getMessage());
         }
     }
 
+    // Only a digest of the body is kept per key, so large requests don't inflate the cache.
+    private static String fingerprint(String requestBody) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(requestBody.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    private static IdempotencyCache.Response errorResponse(int statusCode, String message) {
+        JSONObject errorResponse = new JSONObject();
+        errorResponse.put("success", false);
+        errorResponse.put("error", message);
+        return new IdempotencyCache.Response(statusCode, errorResponse.toString());
+    }
+
     private String readRequestBody(HttpExchange exchange) throws IOException {
         try (InputStream inputStream = exchange.getRequestBody()) {
             byte[] bytes = inputStream.readAllBytes();
@@ -95,6 +166,12 @@ public class ShortenHandler implements HttpHandler {
         }
     }
 
+    // Entries carry epoch millis; the API speaks zone-less local date-times.
+    private static String formatTimestamp(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+            .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
     private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", "application/json");
         byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
@@ -0,0 +1,109 @@
+package com.urlshortener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// 64-bit ids laid out as 41 bits of milliseconds since EPOCH_MILLIS, 10 bits of node id
+// and a 12-bit per-millisecond sequence, so nodes never need to coordinate.
+public class SnowflakeIdGenerator {
+    public static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private final long maxBackwardMillis;
+    private final LongSupplier clock;
+    // Packed (timestamp << SEQUENCE_BITS) | sequence of the last id handed out.
+    private final AtomicLong lastState = new AtomicLong();
+    private final LongAdder sequenceExhausted = new LongAdder();
+    private final LongAdder clockSkewEvents = new LongAdder();
+    private final AtomicLong maxObservedSkewMillis = new AtomicLong();
+
+    public SnowflakeIdGenerator(int nodeId, long maxBackwardMillis) {
+        this(nodeId, maxBackwardMillis, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(int nodeId, long maxBackwardMillis, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.maxBackwardMillis = maxBackwardMillis;
+        this.clock = clock;
+    }
+
+    // Skew and exhaustion are counted once per call, not once per spin.
+    public long nextId() {
+        long skewMillis = 0;
+        boolean exhausted = false;
+        while (true) {
+            long now = clock.getAsLong() - EPOCH_MILLIS;
+            long state = lastState.get();
+            long lastTimestamp = state >>> SEQUENCE_BITS;
+            long timestamp;
+            long sequence;
+
+            if (now > lastTimestamp) {
+                timestamp = now;
+                sequence = 0;
+            } else {
+                if (now < lastTimestamp) {
+                    skewMillis = Math.max(skewMillis, lastTimestamp - now);
+                    if (skewMillis > maxBackwardMillis) {
+                        recordSkew(skewMillis);
+                        throw new IllegalStateException("Clock moved backwards by " + skewMillis
+                            + "ms (tolerance " + maxBackwardMillis + "ms); refusing to mint ids");
+                    }
+                }
+                // Small backward steps (NTP slew, VM pause) keep minting on the last
+                // timestamp; ids stay unique because the sequence keeps counting.
+                sequence = (state & SEQUENCE_MASK) + 1;
+                timestamp = lastTimestamp;
+                if (sequence > SEQUENCE_MASK) {
+                    if (!exhausted) {
+                        exhausted = true;
+                        sequenceExhausted.increment();
+                    }
+                    Thread.onSpinWait();
+                    continue;
+                }
+            }
+
+            long next = (timestamp << SEQUENCE_BITS) | sequence;
+            if (lastState.compareAndSet(state, next)) {
+                if (skewMillis > 0) {
+                    recordSkew(skewMillis);
+                }
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    private void recordSkew(long skewMillis) {
+        clockSkewEvents.increment();
+        maxObservedSkewMillis.accumulateAndGet(skewMillis, Math::max);
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("nodeId", nodeId);
+        metrics.put("sequenceExhausted", sequenceExhausted.sum());
+        metrics.put("clockSkewEvents", clockSkewEvents.sum());
+        metrics.put("maxObservedSkewMillis", maxObservedSkewMillis.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,8 @@
+package com.urlshortener;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+interface SqlFunction<T> {
+    T apply(Connection connection) throws SQLException;
+}
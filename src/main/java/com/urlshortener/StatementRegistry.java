@@ -0,0 +1,142 @@
+package com.urlshortener;
+
+import org.postgresql.PGStatement;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Keeps one PreparedStatement per SQL string for each long-lived shared connection, so the
+// fixed statements are parsed and planned once instead of on every request. Statements are
+// shared between threads, so each one is locked while parameters are bound and results read.
+//
+// DatabaseConnection registers its shared connection when it opens it and unregisters it
+// when it is replaced or closed; a reconnect therefore starts with an empty registry and
+// everything is prepared again. Dedicated connections are never registered and fall back
+// to prepare-and-close.
+class StatementRegistry {
+    private static final Map<Connection, StatementRegistry> REGISTRIES = new ConcurrentHashMap<>();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder prepares = new LongAdder();
+    private static final LongAdder unregistered = new LongAdder();
+    private static final LongAdder invalidations = new LongAdder();
+    private static final LongAdder firstExecutionNanos = new LongAdder();
+    private static final LongAdder reusedExecutionNanos = new LongAdder();
+
+    private final Connection connection;
+    private final ConcurrentHashMap<String, Slot> statements = new ConcurrentHashMap<>();
+
+    interface StatementCall<T> {
+        T apply(PreparedStatement statement) throws SQLException;
+    }
+
+    private StatementRegistry(Connection connection) {
+        this.connection = connection;
+    }
+
+    static void register(Connection connection) {
+        REGISTRIES.put(connection, new StatementRegistry(connection));
+    }
+
+    // The statements die with the connection; only the bookkeeping needs dropping.
+    static void unregister(Connection connection) {
+        if (connection != null) {
+            REGISTRIES.remove(connection);
+        }
+    }
+
+    static <T> T execute(Connection connection, String sql, StatementCall<T> call) throws SQLException {
+        StatementRegistry registry = REGISTRIES.get(connection);
+        if (registry == null) {
+            unregistered.increment();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                return call.apply(statement);
+            }
+        }
+        return registry.run(sql, call);
+    }
+
+    private <T> T run(String sql, StatementCall<T> call) throws SQLException {
+        Slot slot = statements.computeIfAbsent(sql, key -> new Slot());
+        slot.lock.lock();
+        try {
+            boolean first = slot.statement == null;
+            if (first) {
+                slot.statement = connection.prepareStatement(sql);
+                // Use a named server-side statement from the first execution rather than the fifth.
+                if (slot.statement.isWrapperFor(PGStatement.class)) {
+                    slot.statement.unwrap(PGStatement.class).setPrepareThreshold(1);
+                }
+                prepares.increment();
+            } else {
+                hits.increment();
+            }
+
+            long started = System.nanoTime();
+            try {
+                T result = call.apply(slot.statement);
+                (first ? firstExecutionNanos : reusedExecutionNanos).add(System.nanoTime() - started);
+                return result;
+            } catch (SQLException e) {
+                if (isStale(e)) {
+                    discard(slot);
+                }
+                throw e;
+            } finally {
+                if (slot.statement != null) {
+                    slot.statement.clearParameters();
+                }
+            }
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    // Connection failures, a server-side statement that no longer exists, or a cached plan
+    // invalidated by a schema change: the next call prepares a fresh statement.
+    private static boolean isStale(SQLException e) {
+        String state = e.getSQLState();
+        return state == null || state.startsWith("08") || "26000".equals(state) || "0A000".equals(state);
+    }
+
+    private void discard(Slot slot) {
+        invalidations.increment();
+        try {
+            slot.statement.close();
+        } catch (SQLException ignored) {
+            // Already unusable.
+        }
+        slot.statement = null;
+    }
+
+    // The saving per reuse is estimated as the gap between a statement's first execution
+    // (parse + plan + execute) and the average reused execution.
+    static Map<String, Object> getMetrics() {
+        long prepared = prepares.sum();
+        long reused = hits.sum();
+        long firstAvg = prepared > 0 ? firstExecutionNanos.sum() / prepared : 0;
+        long reusedAvg = reused > 0 ? reusedExecutionNanos.sum() / reused : 0;
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("connections", REGISTRIES.size());
+        metrics.put("hits", reused);
+        metrics.put("prepares", prepared);
+        metrics.put("unregistered", unregistered.sum());
+        metrics.put("invalidations", invalidations.sum());
+        metrics.put("avgFirstExecutionMicros", TimeUnit.NANOSECONDS.toMicros(firstAvg));
+        metrics.put("avgReusedExecutionMicros", TimeUnit.NANOSECONDS.toMicros(reusedAvg));
+        metrics.put("estimatedSavedMillis", TimeUnit.NANOSECONDS.toMillis(reused * Math.max(0, firstAvg - reusedAvg)));
+        return metrics;
+    }
+
+    private static class Slot {
+        final ReentrantLock lock = new ReentrantLock();
+        PreparedStatement statement;
+    }
+}
@@ -1,14 +1,32 @@
 package com.urlshortener;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class URLDatabase {
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int MAX_NOTIFY_PAYLOAD = 7000;
+    private static final int MAX_INVALIDATION_CODES = 5000;
+    private static final int MAX_CACHED_DIMENSION_IDS = 100000;
+
     private final AppConfig config;
-    private Connection connection;
+    private final List<Shard> shards = new ArrayList<>();
+    private int shardCount;
+    private int previousShardCount;
+    private PartitionManager partitions;
+    private volatile Consumer<List<String>> deletionListener;
+    private final Map<Shard, Map<String, Integer>> dimensionIds = new ConcurrentHashMap<>();
 
     public URLDatabase() throws SQLException {
         this.config = AppConfig.getInstance();
@@ -29,27 +47,148 @@ public class URLDatabase {
             throw new SQLException("PostgreSQL driver not found", e);
         }
         
-        String databaseUrl = config.getDatabaseUrl();
         String username = config.getDatabaseUsername();
         String password = config.getDatabasePassword();
+
+        List<String> shardUrls = config.getShardUrls();
+        boolean sharded = !shardUrls.isEmpty();
+        if (!sharded) {
+            shardUrls = List.of(config.getDatabaseUrl());
+        }
         
-        System.out.println("DEBUG: Attempting to connect with URL: " + databaseUrl);
-        System.out.println("DEBUG: Username: " + username);
-        System.out.println("DEBUG: Password: " + (password != null ? "[HIDDEN]" : "null"));
-        
-        if (username != null && password != null) {
-            connection = DriverManager.getConnection(databaseUrl, username, password);
-        } else {
-            connection = DriverManager.getConnection(databaseUrl);
+        Boolean partitioned = null;
+        for (int i = 0; i < shardUrls.size(); i++) {
+            String databaseUrl = shardUrls.get(i);
+            System.out.println("DEBUG: Attempting to connect shard " + i + " with URL: " + databaseUrl);
+            System.out.println("DEBUG: Username: " + username);
+            System.out.println("DEBUG: Password: " + (password != null ? "[HIDDEN]" : "null"));
+
+            DatabaseConnection primary = new DatabaseConnection("shard-" + i, databaseUrl, username, password);
+            primary.get();
+            System.out.println("DEBUG: Database connection successful");
+            boolean shardPartitioned = createTables(primary.get());
+            if (partitioned != null && partitioned != shardPartitioned) {
+                throw new SQLException("Shard " + i + " uses a different urls schema mode than shard 0");
+            }
+            partitioned = shardPartitioned;
+
+            List<String> replicaUrls = sharded ? config.getShardReplicaUrls(i) : config.getReplicaUrls();
+            List<DatabaseConnection> replicaConnections = new ArrayList<>();
+            for (int r = 0; r < replicaUrls.size(); r++) {
+                replicaConnections.add(new DatabaseConnection("shard-" + i + "-replica-" + r,
+                    replicaUrls.get(r), username, password));
+            }
+            ReplicaRouter.Selection selection = "least-latency".equalsIgnoreCase(config.getReplicaSelection())
+                ? ReplicaRouter.Selection.LEAST_LATENCY
+                : ReplicaRouter.Selection.ROUND_ROBIN;
+            ReplicaRouter replicas = new ReplicaRouter(replicaConnections, selection,
+                config.getReplicaMaxLagMillis(), config.getReplicaHealthCheckIntervalMillis());
+
+            shards.add(new Shard(i, primary, replicas, config.getReadYourWritesMillis()));
+        }
+
+        int configuredCount = config.getShardCount();
+        shardCount = configuredCount > 0 ? Math.min(configuredCount, shards.size()) : shards.size();
+        previousShardCount = Math.min(config.getPreviousShardCount(), shards.size());
+
+        if (Boolean.TRUE.equals(partitioned)) {
+            partitions = new PartitionManager(config.getPartitionIntervalDays(), config.getPartitionPrecreateDays());
+            for (Shard shard : shards) {
+                partitions.precreate(shard);
+            }
+            partitions.startMaintenance(shards, this::publishInvalidations, config.isCleanupEnabled());
+        }
+    }
+
+    Shard shardFor(String key) {
+        return shards.get(JumpConsistentHash.bucket(key, shardCount));
+    }
+
+    // While a reshard is in progress rows may still live where the previous shard count
+    // placed them; returns that shard when it differs from the current placement.
+    private Shard previousShardFor(String key) {
+        if (previousShardCount <= 0 || previousShardCount == shardCount) {
+            return null;
+        }
+        Shard previous = shards.get(JumpConsistentHash.bucket(key, previousShardCount));
+        return previous == shardFor(key) ? null : previous;
+    }
+
+    private Optional<URLEntry> readEntry(String key, SqlFunction<Optional<URLEntry>> query) throws SQLException {
+        Optional<URLEntry> entry = shardFor(key).read(key, query);
+        if (entry.isEmpty()) {
+            Shard previous = previousShardFor(key);
+            if (previous != null) {
+                entry = previous.read(key, query);
+            }
+        }
+        return entry;
+    }
+
+    private boolean onPrimaryWithFallback(String key, SqlFunction<Boolean> operation) throws SQLException {
+        if (shardFor(key).write(operation)) {
+            return true;
+        }
+        Shard previous = previousShardFor(key);
+        return previous != null && previous.write(operation);
+    }
+
+    // Told the codes of links this node deleted, after the delete is committed.
+    public void setDeletionListener(Consumer<List<String>> deletionListener) {
+        this.deletionListener = deletionListener;
+        if (partitions != null) {
+            partitions.setDeletionListener(deletionListener);
+        }
+    }
+
+    public void setLatencyListener(DatabaseLatencyListener latencyListener) {
+        for (Shard shard : shards) {
+            shard.setLatencyListener(latencyListener);
+        }
+    }
+
+    // With the partitioned schema only expiries inside the precreated ranges can be stored;
+    // callers reject the rest up front.
+    public boolean acceptsExpiry(long expiresAtMillis) {
+        if (partitions == null) {
+            return true;
+        }
+        for (Shard shard : shards) {
+            if (!partitions.hasPartition(shard, expiresAtMillis)) {
+                return false;
+            }
         }
-        System.out.println("DEBUG: Database connection successful");
-        createTables();
+        return true;
+    }
+
+    // Whether urls rows carry the url_hash used for deduplication.
+    boolean storesUrlHash() {
+        return config.isDedupEnabled();
+    }
+
+    // Null when the shards use the plain urls table.
+    PartitionManager getPartitions() {
+        return partitions;
+    }
+
+    List<Shard> getShards() {
+        return shards;
     }
 
-    private void createTables() throws SQLException {
+    int getShardCount() {
+        return shardCount;
+    }
+
+    // Returns true when the shard uses the partitioned schema.
+    private boolean createTables(Connection connection) throws SQLException {
+        boolean partitioned = config.isPartitionedSchema() && PartitionManager.createSchema(connection);
+        if (config.isPartitionedSchema() && !partitioned) {
+            System.err.println("Warning: urls already exists as a plain table; keeping the unpartitioned schema");
+        }
+
         String createTableSQL = """
             CREATE TABLE IF NOT EXISTS urls (
-                id SERIAL PRIMARY KEY,
+                id BIGSERIAL PRIMARY KEY,
                 short_code VARCHAR(255) UNIQUE NOT NULL,
                 original_url TEXT NOT NULL,
                 created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -60,71 +199,258 @@ public class URLDatabase {
             """;
 
         String createIndexSQL = "CREATE INDEX IF NOT EXISTS idx_short_code ON urls(short_code)";
-        String createAliasIndexSQL = "CREATE INDEX IF NOT EXISTS idx_custom_alias ON urls(custom_alias)";
+        String createAliasIndexSQL = "CREATE UNIQUE INDEX IF NOT EXISTS idx_custom_alias_unique ON urls(custom_alias)";
+
+        String createReservedCodesSQL = """
+            CREATE TABLE IF NOT EXISTS reserved_codes (
+                short_code VARCHAR(255) PRIMARY KEY,
+                reserved_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+            """;
 
         try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createTableSQL);
+            if (!partitioned) {
+                stmt.execute(createTableSQL);
+            }
             stmt.execute(createIndexSQL);
-            stmt.execute(createAliasIndexSQL);
+            // Serves keyset-paginated listing in either direction.
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_created_id ON urls(created_at, id)");
+        }
+
+        // Tables created before ids were widened still have a SERIAL id. Changing its type
+        // rewrites the table under an exclusive lock, so that is left to the operator.
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("""
+                 SELECT data_type FROM information_schema.columns
+                 WHERE table_schema = current_schema() AND table_name = 'urls' AND column_name = 'id'
+                 """)) {
+            if (rs.next() && "integer".equals(rs.getString(1))) {
+                System.err.println("Warning: urls.id is INTEGER and overflows after 2^31 links; run "
+                    + "ALTER TABLE urls ALTER COLUMN id TYPE BIGINT; ALTER SEQUENCE urls_id_seq AS BIGINT");
+            }
+        }
+
+        // Existing tables may already hold duplicate aliases; then the old non-unique index stays
+        // and alias inserts are only protected by the short_code constraint. Partitioned tables
+        // can't have it at all: aliases are codes, so url_codes keeps them unique instead.
+        try (Statement stmt = connection.createStatement()) {
+            if (partitioned) {
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_custom_alias ON urls(custom_alias)");
+            } else {
+                stmt.execute(createAliasIndexSQL);
+                stmt.execute("DROP INDEX IF EXISTS idx_custom_alias");
+            }
+        } catch (SQLException e) {
+            System.err.println("Warning: Could not create unique index on custom_alias: " + e.getMessage());
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_custom_alias ON urls(custom_alias)");
+            }
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(createReservedCodesSQL);
+
+            if (config.isDedupEnabled()) {
+                // Only dedup-eligible rows carry a hash, so the partial index stays small.
+                stmt.execute("ALTER TABLE urls ADD COLUMN IF NOT EXISTS url_hash BYTEA");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_url_hash ON urls(url_hash) WHERE url_hash IS NOT NULL");
+            }
+
+            if (config.isVisitorTrackingEnabled()) {
+                stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS url_visitors (
+                        short_code VARCHAR(255) NOT NULL,
+                        bucket_day DATE NOT NULL,
+                        sketch BYTEA NOT NULL,
+                        PRIMARY KEY (short_code, bucket_day)
+                    )
+                    """);
+                // Retention sweeps delete whole days.
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_url_visitors_day ON url_visitors(bucket_day)");
+                // Register-wise maximum of two HyperLogLog sketches, so nodes can merge their
+                // sketches into a row without reading it first. Built in one aggregate pass;
+                // set_byte in a loop would copy the whole value once per register.
+                stmt.execute("""
+                    CREATE OR REPLACE FUNCTION hll_merge(a BYTEA, b BYTEA) RETURNS BYTEA AS $$
+                        SELECT CASE WHEN a IS NULL OR length(a) <> length(b) THEN b ELSE (
+                            SELECT string_agg(set_byte('\\x00'::bytea, 0, GREATEST(get_byte(a, i), get_byte(b, i))),
+                                              ''::bytea ORDER BY i)
+                            FROM generate_series(0, length(b) - 1) AS i
+                        ) END
+                    $$ LANGUAGE sql IMMUTABLE
+                    """);
+            }
+
+            if (config.isClickBreakdownEnabled()) {
+                // Dimension values are interned per shard so breakdown rows carry a small integer
+                // instead of repeating the referrer host or browser name in every row and index.
+                stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS dimension_values (
+                        id SERIAL PRIMARY KEY,
+                        dimension SMALLINT NOT NULL,
+                        value VARCHAR(255) NOT NULL,
+                        UNIQUE (dimension, value)
+                    )
+                    """);
+                stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS click_breakdowns (
+                        short_code VARCHAR(255) NOT NULL,
+                        dimension SMALLINT NOT NULL,
+                        hour TIMESTAMP NOT NULL,
+                        value_id INTEGER NOT NULL,
+                        clicks BIGINT NOT NULL,
+                        PRIMARY KEY (short_code, dimension, hour, value_id)
+                    )
+                    """);
+            }
         }
+        return partitioned;
     }
 
-    public boolean saveURL(URLEntry urlEntry) throws SQLException {
-        String insertSQL = """
-            INSERT INTO urls (short_code, original_url, created_at, expires_at, click_count, custom_alias)
-            VALUES (?, ?, ?, ?, ?, ?)
-            """;
+    public Optional<URLEntry> saveURL(URLEntry urlEntry) throws SQLException {
+        return saveURL(urlEntry, null);
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, urlEntry.getShortCode());
-            pstmt.setString(2, urlEntry.getOriginalUrl());
-            pstmt.setTimestamp(3, urlEntry.getCreatedAt() != null ? 
-                Timestamp.valueOf(urlEntry.getCreatedAt()) : null);
-            pstmt.setTimestamp(4, urlEntry.getExpiresAt() != null ? 
-                Timestamp.valueOf(urlEntry.getExpiresAt()) : null);
-            pstmt.setInt(5, urlEntry.getClickCount());
-            pstmt.setString(6, urlEntry.getCustomAlias());
-
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        urlEntry.setId(generatedKeys.getInt(1));
-                    }
+    // Returns the stored entry with its id, or empty when the short code or alias is already taken.
+    public Optional<URLEntry> saveURL(URLEntry urlEntry, byte[] urlHash) throws SQLException {
+        boolean withHash = config.isDedupEnabled();
+        String columns = "short_code, original_url, created_at, expires_at, click_count, custom_alias"
+            + (withHash ? ", url_hash" : "");
+        // In the partitioned schema the code is claimed in url_codes first; the row is only
+        // inserted when the claim succeeded, so both tables change in the same statement.
+        String insertSQL = partitions != null ? String.format("""
+            WITH claimed AS (
+                INSERT INTO url_codes (short_code, expires_at)
+                VALUES (?, ?)
+                ON CONFLICT DO NOTHING
+                RETURNING short_code
+            ), inserted AS (
+                INSERT INTO urls (%s)
+                SELECT ?::varchar, ?::text, ?::timestamp, ?::timestamp, ?::integer, ?::varchar%s FROM claimed
+                RETURNING id, short_code
+            )
+            SELECT id, pg_notify(?, short_code) FROM inserted
+            """, columns, withHash ? ", ?::bytea" : "") : String.format("""
+            WITH inserted AS (
+                INSERT INTO urls (%s)
+                VALUES (?, ?, ?, ?, ?, ?%s)
+                ON CONFLICT DO NOTHING
+                RETURNING id, short_code
+            )
+            SELECT id, pg_notify(?, short_code) FROM inserted
+            """, columns, withHash ? ", ?" : "");
+
+        // Mid-reshard the code may still live only where the previous shard count put it,
+        // which the insert's conflict check can't see. Probing there first is enough: the
+        // Resharder commits a row on its new shard before deleting it from the old one, so a
+        // row gone from the old shard already blocks the insert below.
+        Shard previous = previousShardFor(urlEntry.getShortCode());
+        if (previous != null && existsOn(previous, urlEntry)) {
+            return Optional.empty();
+        }
+
+        Shard shard = shardFor(urlEntry.getShortCode());
+        Timestamp expiresAt = urlEntry.hasExpiry() ? new Timestamp(urlEntry.getExpiresAtMillis()) : null;
+        if (partitions != null && !partitions.hasPartition(shard, urlEntry.getExpiresAtMillis())) {
+            throw new SQLException("No partition on shard " + shard.getIndex() + " for expiry "
+                + urlEntry.getExpiresAtMillis());
+        }
+        return StatementRegistry.execute(shard.getPrimary().get(), insertSQL, pstmt -> {
+            int index = 1;
+            if (partitions != null) {
+                pstmt.setString(index++, urlEntry.getShortCode());
+                pstmt.setTimestamp(index++, expiresAt);
+            }
+            pstmt.setString(index++, urlEntry.getShortCode());
+            pstmt.setString(index++, urlEntry.getOriginalUrl());
+            pstmt.setTimestamp(index++, new Timestamp(urlEntry.getCreatedAtMillis()));
+            pstmt.setTimestamp(index++, expiresAt);
+            pstmt.setInt(index++, urlEntry.getClickCount());
+            pstmt.setString(index++, urlEntry.getCustomAlias());
+            if (withHash) {
+                pstmt.setBytes(index++, urlHash);
+            }
+            pstmt.setString(index, InvalidationListener.CHANNEL);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    shard.recordWrite(urlEntry.getShortCode());
+                    shard.recordWrite(urlEntry.getCustomAlias());
+                    return Optional.of(urlEntry.withId(rs.getLong("id")));
                 }
-                return true;
             }
-        }
-        return false;
+            return Optional.<URLEntry>empty();
+        });
+    }
+
+    private boolean existsOn(Shard shard, URLEntry urlEntry) throws SQLException {
+        String selectSQL = "SELECT 1 FROM urls WHERE short_code = ? OR custom_alias = ? LIMIT 1";
+
+        return shard.write(connection -> StatementRegistry.execute(connection, selectSQL, pstmt -> {
+            pstmt.setString(1, urlEntry.getShortCode());
+            pstmt.setString(2, urlEntry.getShortCode());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }));
     }
 
     public Optional<URLEntry> findByShortCode(String shortCode) throws SQLException {
         String selectSQL = "SELECT * FROM urls WHERE short_code = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(selectSQL)) {
+        return readEntry(shortCode, connection -> StatementRegistry.execute(connection, selectSQL, pstmt -> {
             pstmt.setString(1, shortCode);
-            
+
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     return Optional.of(mapResultSetToURLEntry(rs));
                 }
             }
-        }
-        return Optional.empty();
+            return Optional.<URLEntry>empty();
+        }));
     }
 
     public Optional<URLEntry> findByCustomAlias(String alias) throws SQLException {
         String selectSQL = "SELECT * FROM urls WHERE custom_alias = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(selectSQL)) {
+        return readEntry(alias, connection -> StatementRegistry.execute(connection, selectSQL, pstmt -> {
             pstmt.setString(1, alias);
-            
+
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     return Optional.of(mapResultSetToURLEntry(rs));
                 }
             }
+            return Optional.<URLEntry>empty();
+        }));
+    }
+
+    // Rows are placed by short code, not by URL, so a hash lookup has to ask every shard. It
+    // goes to the primaries: a lagging replica would miss a link created moments ago and let
+    // a second copy of it through.
+    public Optional<URLEntry> findByUrlHash(byte[] urlHash) throws SQLException {
+        String selectSQL = """
+            SELECT * FROM urls
+            WHERE url_hash = ? AND custom_alias IS NULL AND expires_at IS NULL
+            LIMIT 1
+            """;
+
+        for (Shard shard : shards) {
+            Optional<URLEntry> entry = shard.write(connection ->
+                StatementRegistry.execute(connection, selectSQL, pstmt -> {
+                    pstmt.setBytes(1, urlHash);
+
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            return Optional.of(mapResultSetToURLEntry(rs));
+                        }
+                    }
+                    return Optional.<URLEntry>empty();
+                }));
+            if (entry.isPresent()) {
+                return entry;
+            }
         }
         return Optional.empty();
     }
@@ -132,10 +458,280 @@ public class URLDatabase {
     public boolean incrementClickCount(String shortCode) throws SQLException {
         String updateSQL = "UPDATE urls SET click_count = click_count + 1 WHERE short_code = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(updateSQL)) {
+        return onPrimaryWithFallback(shortCode, connection -> StatementRegistry.execute(connection, updateSQL, pstmt -> {
             pstmt.setString(1, shortCode);
             return pstmt.executeUpdate() > 0;
+        }));
+    }
+
+    public void mergeVisitorSketches(List<VisitorTracker.Pending> sketches) throws SQLException {
+        String upsertSQL = """
+            INSERT INTO url_visitors (short_code, bucket_day, sketch) VALUES (?, ?, ?)
+            ON CONFLICT (short_code, bucket_day) DO UPDATE SET sketch = hll_merge(url_visitors.sketch, EXCLUDED.sketch)
+            """;
+
+        Map<Shard, List<VisitorTracker.Pending>> byShard = new LinkedHashMap<>();
+        for (VisitorTracker.Pending sketch : sketches) {
+            byShard.computeIfAbsent(shardFor(sketch.getShortCode()), s -> new ArrayList<>()).add(sketch);
+        }
+        for (Map.Entry<Shard, List<VisitorTracker.Pending>> entry : byShard.entrySet()) {
+            // Sorted so concurrent flushes from several nodes lock rows in the same order.
+            List<VisitorTracker.Pending> batch = entry.getValue();
+            batch.sort(Comparator.comparing(VisitorTracker.Pending::getShortCode)
+                .thenComparing(VisitorTracker.Pending::getDay));
+            entry.getKey().write(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(upsertSQL)) {
+                    for (VisitorTracker.Pending sketch : batch) {
+                        pstmt.setString(1, sketch.getShortCode());
+                        pstmt.setDate(2, Date.valueOf(sketch.getDay()));
+                        pstmt.setBytes(3, sketch.getSketch());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                return null;
+            });
+        }
+    }
+
+    public void writeClickBreakdowns(List<ClickBreakdowns.Count> counts) throws SQLException {
+        String upsertSQL = """
+            INSERT INTO click_breakdowns (short_code, dimension, hour, value_id, clicks) VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (short_code, dimension, hour, value_id) DO UPDATE SET clicks = click_breakdowns.clicks + EXCLUDED.clicks
+            """;
+
+        Map<Shard, List<ClickBreakdowns.Count>> byShard = new LinkedHashMap<>();
+        for (ClickBreakdowns.Count count : counts) {
+            byShard.computeIfAbsent(shardFor(count.getShortCode()), s -> new ArrayList<>()).add(count);
+        }
+        for (Map.Entry<Shard, List<ClickBreakdowns.Count>> entry : byShard.entrySet()) {
+            Shard shard = entry.getKey();
+            List<ClickBreakdowns.Count> batch = entry.getValue();
+            Map<String, Integer> ids = internDimensionValues(shard, batch);
+            // Sorted so concurrent flushes from several nodes lock rows in the same order.
+            batch.sort(Comparator.comparing(ClickBreakdowns.Count::getShortCode)
+                .thenComparing(ClickBreakdowns.Count::getDimension)
+                .thenComparing(ClickBreakdowns.Count::getHour)
+                .thenComparing(count -> ids.get(dimensionKey(count.getDimension().getId(), count.getValue()))));
+            shard.write(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(upsertSQL)) {
+                    for (ClickBreakdowns.Count count : batch) {
+                        pstmt.setString(1, count.getShortCode());
+                        pstmt.setShort(2, (short) count.getDimension().getId());
+                        pstmt.setTimestamp(3, Timestamp.valueOf(count.getHour()));
+                        pstmt.setInt(4, ids.get(dimensionKey(count.getDimension().getId(), count.getValue())));
+                        pstmt.setLong(5, count.getClicks());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                return null;
+            });
+        }
+    }
+
+    // Returns dictionary ids for every value in the batch, inserting the missing ones in one
+    // statement. The insert's RETURNING covers new values and the join covers existing ones; a
+    // value committed concurrently by another node is visible to neither, hence the retry.
+    private Map<String, Integer> internDimensionValues(Shard shard, List<ClickBreakdowns.Count> counts)
+            throws SQLException {
+        String internSQL = """
+            WITH input AS (
+                SELECT DISTINCT dimension, value FROM unnest(?::int[], ?::text[]) AS t(dimension, value)
+            ), inserted AS (
+                INSERT INTO dimension_values (dimension, value)
+                SELECT dimension, value FROM input
+                ON CONFLICT (dimension, value) DO NOTHING
+                RETURNING id, dimension, value
+            )
+            SELECT id, dimension, value FROM inserted
+            UNION ALL
+            SELECT d.id, d.dimension, d.value FROM dimension_values d
+            JOIN input i ON d.dimension = i.dimension AND d.value = i.value
+            """;
+
+        Map<String, Integer> cached = dimensionIds.computeIfAbsent(shard, s -> new ConcurrentHashMap<>());
+        if (cached.size() > MAX_CACHED_DIMENSION_IDS) {
+            cached.clear();
+        }
+
+        Map<String, Integer> ids = new HashMap<>();
+        List<Integer> missingDimensions = new ArrayList<>();
+        List<String> missingValues = new ArrayList<>();
+        for (ClickBreakdowns.Count count : counts) {
+            String key = dimensionKey(count.getDimension().getId(), count.getValue());
+            Integer id = cached.get(key);
+            if (id != null) {
+                ids.put(key, id);
+            } else if (!ids.containsKey(key)) {
+                ids.put(key, null);
+                missingDimensions.add(count.getDimension().getId());
+                missingValues.add(count.getValue());
+            }
+        }
+
+        for (int attempt = 0; attempt < 2 && !missingValues.isEmpty(); attempt++) {
+            shard.write(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(internSQL)) {
+                    pstmt.setArray(1, connection.createArrayOf("integer", missingDimensions.toArray()));
+                    pstmt.setArray(2, connection.createArrayOf("text", missingValues.toArray()));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            String key = dimensionKey(rs.getInt(2), rs.getString(3));
+                            ids.put(key, rs.getInt(1));
+                            cached.put(key, rs.getInt(1));
+                        }
+                    }
+                }
+                return null;
+            });
+            for (int i = missingValues.size() - 1; i >= 0; i--) {
+                if (ids.get(dimensionKey(missingDimensions.get(i), missingValues.get(i))) != null) {
+                    missingDimensions.remove(i);
+                    missingValues.remove(i);
+                }
+            }
+        }
+        if (!missingValues.isEmpty()) {
+            throw new SQLException("Could not intern " + missingValues.size() + " dimension values");
         }
+        return ids;
+    }
+
+    private static String dimensionKey(int dimension, String value) {
+        return dimension + ":" + value;
+    }
+
+    // Clicks per value since the given hour, largest first. During a reshard both placements
+    // are read and summed: the resharder moves rows rather than copying them, and new clicks
+    // only go to the current placement.
+    public Map<String, Long> findClickBreakdown(String shortCode, ClickDimensions.Dimension dimension,
+            LocalDateTime since) throws SQLException {
+        String selectSQL = """
+            SELECT d.value, SUM(b.clicks) AS clicks FROM click_breakdowns b
+            JOIN dimension_values d ON d.id = b.value_id
+            WHERE b.short_code = ? AND b.dimension = ? AND b.hour >= ?
+            GROUP BY d.value
+            ORDER BY clicks DESC
+            """;
+        SqlFunction<Map<String, Long>> query = connection -> StatementRegistry.execute(connection, selectSQL, pstmt -> {
+            pstmt.setString(1, shortCode);
+            pstmt.setShort(2, (short) dimension.getId());
+            pstmt.setTimestamp(3, Timestamp.valueOf(since));
+            Map<String, Long> breakdown = new LinkedHashMap<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    breakdown.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+            return breakdown;
+        });
+
+        Map<String, Long> breakdown = shardFor(shortCode).read(shortCode, query);
+        Shard previous = previousShardFor(shortCode);
+        if (previous == null) {
+            return breakdown;
+        }
+        Map<String, Long> merged = new HashMap<>(breakdown);
+        previous.read(shortCode, query).forEach((value, clicks) -> merged.merge(value, clicks, Long::sum));
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        merged.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    // Sketches older than the retention window; their days no longer count towards
+    // uniqueVisitors.
+    public int deleteVisitorSketchesBefore(LocalDate cutoff) throws SQLException {
+        String deleteSQL = "DELETE FROM url_visitors WHERE bucket_day < ?";
+
+        int deleted = 0;
+        for (Shard shard : shards) {
+            deleted += shard.write(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(deleteSQL)) {
+                    pstmt.setDate(1, Date.valueOf(cutoff));
+                    return pstmt.executeUpdate();
+                }
+            });
+        }
+        return deleted;
+    }
+
+    // Every stored sketch for a link; during a reshard both placements are read, which is
+    // harmless because merging sketches never double counts.
+    public List<byte[]> findVisitorSketches(String shortCode) throws SQLException {
+        String selectSQL = "SELECT sketch FROM url_visitors WHERE short_code = ?";
+        SqlFunction<List<byte[]>> query = connection -> StatementRegistry.execute(connection, selectSQL, pstmt -> {
+            pstmt.setString(1, shortCode);
+            List<byte[]> sketches = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sketches.add(rs.getBytes(1));
+                }
+            }
+            return sketches;
+        });
+
+        List<byte[]> sketches = shardFor(shortCode).read(shortCode, query);
+        Shard previous = previousShardFor(shortCode);
+        if (previous != null) {
+            sketches.addAll(previous.read(shortCode, query));
+        }
+        return sketches;
+    }
+
+    // Code and alias in one statement; with countClick the click is recorded by a data-modifying
+    // CTE in the same round trip. The row is returned even when expired (without counting) so
+    // the caller can tell "expired" from "not found".
+    public Optional<RedirectTarget> resolveRedirect(String key, boolean countClick) throws SQLException {
+        String resolveSQL = """
+            SELECT short_code, original_url, expires_at FROM urls
+            WHERE short_code = ? OR custom_alias = ?
+            ORDER BY short_code = ? DESC
+            LIMIT 1
+            """;
+        String resolveAndCountSQL = """
+            WITH target AS (
+                SELECT short_code, original_url, expires_at FROM urls
+                WHERE short_code = ? OR custom_alias = ?
+                ORDER BY short_code = ? DESC
+                LIMIT 1
+            ), clicked AS (
+                UPDATE urls SET click_count = click_count + 1
+                FROM target
+                WHERE urls.short_code = target.short_code AND (target.expires_at IS NULL OR target.expires_at > ?)
+            )
+            SELECT short_code, original_url, expires_at FROM target
+            """;
+
+        SqlFunction<Optional<RedirectTarget>> query = connection ->
+            StatementRegistry.execute(connection, countClick ? resolveAndCountSQL : resolveSQL, pstmt -> {
+                pstmt.setString(1, key);
+                pstmt.setString(2, key);
+                pstmt.setString(3, key);
+                if (countClick) {
+                    pstmt.setTimestamp(4, new Timestamp(CoarseClock.millis()));
+                }
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return Optional.of(new RedirectTarget(rs.getString("short_code"),
+                            rs.getString("original_url"), toMillis(rs.getTimestamp("expires_at"))));
+                    }
+                }
+                return Optional.<RedirectTarget>empty();
+            });
+
+        Shard shard = shardFor(key);
+        Optional<RedirectTarget> target = countClick ? shard.write(query) : shard.read(key, query);
+        if (target.isEmpty()) {
+            Shard previous = previousShardFor(key);
+            if (previous != null) {
+                target = countClick ? previous.write(query) : previous.read(key, query);
+            }
+        }
+        return target;
     }
 
     public Optional<URLEntry> getAnalytics(String shortCode) throws SQLException {
@@ -143,84 +739,346 @@ public class URLDatabase {
     }
 
     public List<URLEntry> getAllUrls() throws SQLException {
-        List<URLEntry> urls = new ArrayList<>();
         String selectSQL = "SELECT * FROM urls ORDER BY created_at DESC";
         
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(selectSQL)) {
-            
-            while (rs.next()) {
-                urls.add(mapResultSetToURLEntry(rs));
-            }
+        List<URLEntry> urls = new ArrayList<>();
+        for (Shard shard : shards) {
+            urls.addAll(shard.read(null, connection -> {
+                List<URLEntry> shardUrls = new ArrayList<>();
+                try (Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery(selectSQL)) {
+
+                    while (rs.next()) {
+                        shardUrls.add(mapResultSetToURLEntry(rs));
+                    }
+                }
+                return shardUrls;
+            }));
+        }
+
+        if (shards.size() > 1) {
+            urls.sort(Comparator.comparingLong(URLEntry::getCreatedAtMillis).reversed());
         }
         return urls;
     }
 
+    // One page of links, newest first, starting after the cursor (or from the newest when it
+    // is null). Each shard contributes at most limit + 1 rows from its (created_at, id) index;
+    // the extra row tells the caller whether there is a next page.
+    public List<UrlListing.Row> listUrls(UrlListing.Cursor after, int limit, UrlListing.Filter filter)
+            throws SQLException {
+        StringBuilder where = new StringBuilder("created_at IS NOT NULL");
+        if (after != null) {
+            where.append(" AND (created_at, id) %s (?, ?)");
+        }
+        if (Boolean.TRUE.equals(filter.getExpired())) {
+            where.append(" AND expires_at <= ?");
+        } else if (Boolean.FALSE.equals(filter.getExpired())) {
+            where.append(" AND (expires_at IS NULL OR expires_at > ?)");
+        }
+        if (filter.getMinClicks() > 0) {
+            where.append(" AND click_count >= ?");
+        }
+        String selectSQL = "SELECT * FROM urls WHERE " + where + " ORDER BY created_at DESC, id DESC LIMIT ?";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<List<UrlListing.Row>> pages = new ArrayList<>();
+        for (Shard shard : shards) {
+            // Rows tied with the cursor on (created_at, id) still follow it on lower-numbered shards.
+            String sql = String.format(selectSQL,
+                after != null && shard.getIndex() < after.getShard() ? "<=" : "<");
+            pages.add(shard.read(null, connection -> StatementRegistry.execute(connection, sql, pstmt -> {
+                int index = 1;
+                if (after != null) {
+                    pstmt.setTimestamp(index++, fromMicros(after.getCreatedAtMicros()));
+                    pstmt.setLong(index++, after.getId());
+                }
+                if (filter.getExpired() != null) {
+                    pstmt.setTimestamp(index++, now);
+                }
+                if (filter.getMinClicks() > 0) {
+                    pstmt.setInt(index++, filter.getMinClicks());
+                }
+                pstmt.setInt(index, limit + 1);
+
+                List<UrlListing.Row> rows = new ArrayList<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new UrlListing.Row(mapResultSetToURLEntry(rs),
+                            toMicros(rs.getTimestamp("created_at")), shard.getIndex()));
+                    }
+                }
+                return rows;
+            })));
+        }
+        return UrlListing.merge(pages, limit);
+    }
+
+    // Streams every row of every shard over a dedicated cursor-backed connection, so
+    // exports don't hold the whole table in memory or tie up the shared connections.
+    public void forEachUrl(Consumer<URLEntry> consumer) throws SQLException {
+        String selectSQL = "SELECT * FROM urls";
+
+        for (Shard shard : shards) {
+            try (Connection connection = shard.getPrimary().openDedicated()) {
+                connection.setAutoCommit(false);
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.setFetchSize(STREAM_FETCH_SIZE);
+                    try (ResultSet rs = stmt.executeQuery(selectSQL)) {
+                        while (rs.next()) {
+                            consumer.accept(mapResultSetToURLEntry(rs));
+                        }
+                    }
+                }
+                connection.commit();
+            }
+        }
+    }
+
+    // Streams the live links of one shard in the given order through a server-side cursor,
+    // handing them over a page at a time; the consumer returns false to stop early.
+    public void forEachWarmupPage(Shard shard, WarmupOrder order, int limit, int pageSize,
+                                  Predicate<List<URLEntry>> pageConsumer) throws SQLException {
+        String selectSQL = "SELECT * FROM urls WHERE expires_at IS NULL OR expires_at > ? ORDER BY "
+            + order.orderBy + " LIMIT ?";
+
+        try (Connection connection = shard.getPrimary().openDedicated()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(selectSQL)) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                pstmt.setInt(2, limit);
+                pstmt.setFetchSize(pageSize);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    List<URLEntry> page = new ArrayList<>(pageSize);
+                    while (rs.next()) {
+                        page.add(mapResultSetToURLEntry(rs));
+                        if (page.size() == pageSize) {
+                            if (!pageConsumer.test(page)) {
+                                break;
+                            }
+                            page = new ArrayList<>(pageSize);
+                        }
+                    }
+                    if (!page.isEmpty()) {
+                        pageConsumer.test(page);
+                    }
+                }
+            }
+            connection.commit();
+        }
+    }
+
+    public enum WarmupOrder {
+        MOST_CLICKED("click_count DESC"),
+        MOST_RECENT("created_at DESC");
+
+        private final String orderBy;
+
+        WarmupOrder(String orderBy) {
+            this.orderBy = orderBy;
+        }
+    }
+
+    // With the partitioned schema only fully expired partitions are removed; rows expiring
+    // inside the current range stay (and redirect as expired) until the whole range is dropped.
     public int deleteExpiredUrls() throws SQLException {
-        String deleteSQL = "DELETE FROM urls WHERE expires_at < ?";
+        if (partitions != null) {
+            int dropped = 0;
+            for (Shard shard : shards) {
+                dropped += partitions.dropExpired(shard, this::publishInvalidations);
+            }
+            return dropped;
+        }
+
+        String deleteSQL = "DELETE FROM urls WHERE expires_at < ? RETURNING short_code";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(deleteSQL)) {
-            pstmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-            return pstmt.executeUpdate();
+        int deleted = 0;
+        for (Shard shard : shards) {
+            List<String> deletedCodes = shard.write(connection -> {
+                List<String> shortCodes = new ArrayList<>();
+                try (PreparedStatement pstmt = connection.prepareStatement(deleteSQL)) {
+                    pstmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            shortCodes.add(rs.getString(1));
+                        }
+                    }
+                }
+                publishInvalidations(connection, shortCodes);
+                return shortCodes;
+            });
+            deleted += deletedCodes.size();
+            Consumer<List<String>> listener = deletionListener;
+            if (listener != null && !deletedCodes.isEmpty()) {
+                listener.accept(deletedCodes);
+            }
+        }
+        return deleted;
+    }
+
+    // NOTIFY payloads are capped at 8000 bytes, so codes are packed into comma-separated
+    // chunks; very large batches are collapsed into a single invalidate-everything message.
+    private void publishInvalidations(Connection connection, List<String> shortCodes) throws SQLException {
+        if (shortCodes.isEmpty()) {
+            return;
+        }
+
+        List<String> payloads = new ArrayList<>();
+        if (shortCodes.size() > MAX_INVALIDATION_CODES) {
+            payloads.add(InvalidationListener.INVALIDATE_ALL);
+        } else {
+            StringBuilder payload = new StringBuilder();
+            for (String shortCode : shortCodes) {
+                if (payload.length() + shortCode.length() + 1 > MAX_NOTIFY_PAYLOAD) {
+                    payloads.add(payload.toString());
+                    payload.setLength(0);
+                }
+                if (payload.length() > 0) {
+                    payload.append(',');
+                }
+                payload.append(shortCode);
+            }
+            payloads.add(payload.toString());
+        }
+
+        String notifySQL = "SELECT pg_notify(?, payload) FROM unnest(?::text[]) AS payload";
+        try (PreparedStatement pstmt = connection.prepareStatement(notifySQL)) {
+            pstmt.setString(1, InvalidationListener.CHANNEL);
+            pstmt.setArray(2, connection.createArrayOf("text", payloads.toArray()));
+            pstmt.executeQuery().close();
         }
     }
 
     public boolean shortCodeExists(String shortCode) throws SQLException {
         String selectSQL = "SELECT 1 FROM urls WHERE short_code = ? LIMIT 1";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(selectSQL)) {
+        return onPrimaryWithFallback(shortCode, connection -> StatementRegistry.execute(connection, selectSQL, pstmt -> {
             pstmt.setString(1, shortCode);
-            
+
             try (ResultSet rs = pstmt.executeQuery()) {
                 return rs.next();
             }
+        }));
+    }
+
+    // Claims the candidates that are neither in use nor reserved by another node, in one
+    // round trip per shard, and returns the ones this node now owns.
+    public List<String> reserveShortCodes(List<String> candidates) throws SQLException {
+        String reserveSQL = """
+            INSERT INTO reserved_codes (short_code)
+            SELECT c FROM unnest(?::text[]) AS c
+            WHERE NOT EXISTS (SELECT 1 FROM urls WHERE short_code = c OR custom_alias = c)
+            ON CONFLICT DO NOTHING
+            RETURNING short_code
+            """;
+
+        List<String> granted = new ArrayList<>();
+        for (Map.Entry<Shard, List<String>> group : groupByShard(candidates).entrySet()) {
+            granted.addAll(group.getKey().write(connection -> {
+                List<String> shardGranted = new ArrayList<>();
+                try (PreparedStatement pstmt = connection.prepareStatement(reserveSQL)) {
+                    pstmt.setArray(1, connection.createArrayOf("text", group.getValue().toArray()));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            shardGranted.add(rs.getString(1));
+                        }
+                    }
+                }
+                return shardGranted;
+            }));
         }
+        return granted;
     }
 
-    public boolean customAliasExists(String alias) throws SQLException {
-        String selectSQL = "SELECT 1 FROM urls WHERE custom_alias = ? LIMIT 1";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(selectSQL)) {
-            pstmt.setString(1, alias);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next();
-            }
+    public void releaseShortCodes(List<String> shortCodes) throws SQLException {
+        String releaseSQL = "DELETE FROM reserved_codes WHERE short_code = ANY(?)";
+
+        for (Map.Entry<Shard, List<String>> group : groupByShard(shortCodes).entrySet()) {
+            group.getKey().write(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(releaseSQL)) {
+                    pstmt.setArray(1, connection.createArrayOf("text", group.getValue().toArray()));
+                    return pstmt.executeUpdate();
+                }
+            });
         }
     }
 
-    private URLEntry mapResultSetToURLEntry(ResultSet rs) throws SQLException {
-        URLEntry entry = new URLEntry();
-        entry.setId(rs.getInt("id"));
-        entry.setShortCode(rs.getString("short_code"));
-        entry.setOriginalUrl(rs.getString("original_url"));
-        
-        Timestamp createdAt = rs.getTimestamp("created_at");
-        if (createdAt != null) {
-            entry.setCreatedAt(createdAt.toLocalDateTime());
+    // Reservations only have to outlive the pool that holds them; once a code is used
+    // its urls row blocks reuse on its own.
+    public int deleteStaleReservations(int maxAgeDays) throws SQLException {
+        String deleteSQL = "DELETE FROM reserved_codes WHERE reserved_at < ?";
+
+        int deleted = 0;
+        for (Shard shard : shards) {
+            deleted += shard.write(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(deleteSQL)) {
+                    pstmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now().minusDays(maxAgeDays)));
+                    return pstmt.executeUpdate();
+                }
+            });
         }
-        
-        Timestamp expiresAt = rs.getTimestamp("expires_at");
-        if (expiresAt != null) {
-            entry.setExpiresAt(expiresAt.toLocalDateTime());
+        return deleted;
+    }
+
+    private Map<Shard, List<String>> groupByShard(List<String> keys) {
+        Map<Shard, List<String>> groups = new LinkedHashMap<>();
+        for (String key : keys) {
+            groups.computeIfAbsent(shardFor(key), shard -> new ArrayList<>()).add(key);
         }
-        
-        entry.setClickCount(rs.getInt("click_count"));
-        entry.setCustomAlias(rs.getString("custom_alias"));
-        
-        return entry;
+        return groups;
+    }
+
+    private URLEntry mapResultSetToURLEntry(ResultSet rs) throws SQLException {
+        return new URLEntry(rs.getLong("id"), rs.getString("short_code"), rs.getString("original_url"),
+            toMillis(rs.getTimestamp("created_at")), toMillis(rs.getTimestamp("expires_at")),
+            rs.getInt("click_count"), rs.getString("custom_alias"));
+    }
+
+    // TIMESTAMP columns hold local time; the driver reads and binds them in the JVM's zone.
+    private static long toMillis(Timestamp timestamp) {
+        return timestamp != null ? timestamp.getTime() : URLEntry.NO_EXPIRY;
+    }
+
+    // Listing cursors keep the column's microsecond precision; with millis, rows created in
+    // the same millisecond as the cursor row would compare equal to it and be skipped.
+    private static long toMicros(Timestamp timestamp) {
+        return Math.floorDiv(timestamp.getTime(), 1000) * 1_000_000 + timestamp.getNanos() / 1000;
+    }
+
+    private static Timestamp fromMicros(long micros) {
+        Timestamp timestamp = new Timestamp(Math.floorDiv(micros, 1_000_000) * 1000);
+        timestamp.setNanos(Math.floorMod(micros, 1_000_000) * 1000);
+        return timestamp;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("shardCount", shardCount);
+        metrics.put("previousShardCount", previousShardCount);
+        metrics.put("partitionedSchema", partitions != null);
+        metrics.put("statements", StatementRegistry.getMetrics());
+        for (Shard shard : shards) {
+            metrics.put("shard-" + shard.getIndex(), shard.getMetrics());
+        }
+        return metrics;
     }
 
     public void close() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+        if (partitions != null) {
+            partitions.stop();
+        }
+        for (Shard shard : shards) {
+            shard.close();
         }
     }
 
+    // Codes derived from the sequence must be unique across shards, so only shard 0's
+    // sequence is ever used.
     public long getNextId() throws SQLException {
         String selectSQL = "SELECT nextval('urls_id_seq')";
         
-        try (Statement stmt = connection.createStatement();
+        try (Statement stmt = shards.get(0).getPrimary().get().createStatement();
              ResultSet rs = stmt.executeQuery(selectSQL)) {
             
             if (rs.next()) {
@@ -1,93 +1,86 @@
 package com.urlshortener;
 
-import java.time.LocalDateTime;
-
-public class URLEntry {
-    private int id;
-    private String shortCode;
-    private String originalUrl;
-    private LocalDateTime createdAt;
-    private LocalDateTime expiresAt;
-    private int clickCount;
-    private String customAlias;
-
-    public URLEntry() {}
-
-    public URLEntry(String shortCode, String originalUrl) {
+// Immutable. Timestamps are epoch millis; expiresAt is NO_EXPIRY for links that never expire.
+public final class URLEntry {
+    public static final long NO_EXPIRY = 0L;
+
+    private final long id;
+    private final String shortCode;
+    private final String originalUrl;
+    private final long createdAt;
+    private final long expiresAt;
+    private final int clickCount;
+    private final String customAlias;
+
+    public URLEntry(long id, String shortCode, String originalUrl, long createdAt, long expiresAt,
+                    int clickCount, String customAlias) {
+        this.id = id;
         this.shortCode = shortCode;
         this.originalUrl = originalUrl;
-        this.createdAt = LocalDateTime.now();
-        this.clickCount = 0;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.clickCount = clickCount;
+        this.customAlias = customAlias;
     }
 
-    public URLEntry(String shortCode, String originalUrl, LocalDateTime expiresAt) {
-        this(shortCode, originalUrl);
-        this.expiresAt = expiresAt;
+    public URLEntry(String shortCode, String originalUrl) {
+        this(shortCode, originalUrl, NO_EXPIRY);
+    }
+
+    public URLEntry(String shortCode, String originalUrl, long expiresAt) {
+        this(0L, shortCode, originalUrl, CoarseClock.millis(), expiresAt, 0, null);
     }
 
     public URLEntry(String shortCode, String originalUrl, String customAlias) {
-        this(shortCode, originalUrl);
-        this.customAlias = customAlias;
+        this(0L, shortCode, originalUrl, CoarseClock.millis(), NO_EXPIRY, 0, customAlias);
     }
 
-    public int getId() {
-        return id;
+    public URLEntry withId(long id) {
+        return new URLEntry(id, shortCode, originalUrl, createdAt, expiresAt, clickCount, customAlias);
     }
 
-    public void setId(int id) {
-        this.id = id;
+    public URLEntry withCustomAlias(String customAlias) {
+        return new URLEntry(id, shortCode, originalUrl, createdAt, expiresAt, clickCount, customAlias);
     }
 
-    public String getShortCode() {
-        return shortCode;
+    public long getId() {
+        return id;
     }
 
-    public void setShortCode(String shortCode) {
-        this.shortCode = shortCode;
+    public String getShortCode() {
+        return shortCode;
     }
 
     public String getOriginalUrl() {
         return originalUrl;
     }
 
-    public void setOriginalUrl(String originalUrl) {
-        this.originalUrl = originalUrl;
-    }
-
-    public LocalDateTime getCreatedAt() {
+    public long getCreatedAtMillis() {
         return createdAt;
     }
 
-    public void setCreatedAt(LocalDateTime createdAt) {
-        this.createdAt = createdAt;
-    }
-
-    public LocalDateTime getExpiresAt() {
+    public long getExpiresAtMillis() {
         return expiresAt;
     }
 
-    public void setExpiresAt(LocalDateTime expiresAt) {
-        this.expiresAt = expiresAt;
+    public boolean hasExpiry() {
+        return expiresAt != NO_EXPIRY;
     }
 
     public int getClickCount() {
         return clickCount;
     }
 
-    public void setClickCount(int clickCount) {
-        this.clickCount = clickCount;
-    }
-
     public String getCustomAlias() {
         return customAlias;
     }
 
-    public void setCustomAlias(String customAlias) {
-        this.customAlias = customAlias;
+    public boolean isExpired() {
+        return isExpired(CoarseClock.millis());
     }
 
-    public boolean isExpired() {
-        return expiresAt != null && LocalDateTime.now().isAfter(expiresAt);
+    public boolean isExpired(long nowMillis) {
+        return expiresAt != NO_EXPIRY && nowMillis > expiresAt;
     }
 
     @Override
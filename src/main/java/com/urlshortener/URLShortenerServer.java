@@ -1,16 +1,27 @@
 package com.urlshortener;
 
+import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class URLShortenerServer {
     private final HttpServer server;
     private final URLShortenerService urlService;
     private final AppConfig config;
     private final String baseUrl;
+    // Flipped once startup work is done; until then /health asks load balancers to wait.
+    private volatile boolean ready;
+    private final List<BulkheadFilter> bulkheads = new ArrayList<>();
+    private ExecutorService dispatcher;
 
     public URLShortenerServer(int port, String host) throws IOException, SQLException {
         this.config = AppConfig.getInstance();
@@ -36,30 +47,152 @@ public class URLShortenerServer {
     }
 
     private void setupRoutes() {
-        server.createContext("/", new HomeHandler(baseUrl));
+        HttpContext homeContext = server.createContext("/", new HomeHandler(baseUrl));
         
-        server.createContext("/shorten", new ShortenHandler(urlService, baseUrl));
-        server.createContext("/u/", new RedirectHandler(urlService));
-        server.createContext("/analytics/", new AnalyticsHandler(urlService));
+        IdempotencyCache idempotencyCache = new IdempotencyCache(config.getIdempotencyMaxKeys(),
+            config.getIdempotencyTtlSeconds());
+        HttpContext shortenContext = server.createContext("/shorten",
+            new ShortenHandler(urlService, baseUrl, idempotencyCache));
+        HttpContext redirectContext = server.createContext("/u/", new RedirectHandler(urlService,
+            config.isForwardedForTrusted(), config.getCountryHeader()));
+        HttpContext analyticsContext = server.createContext("/analytics/", new AnalyticsHandler(urlService));
+        HttpContext listContext = server.createContext(UrlListHandler.PATH, new UrlListHandler(urlService, baseUrl));
+        HttpContext searchContext = server.createContext(UrlSearchHandler.PATH,
+            new UrlSearchHandler(urlService, baseUrl));
+
+        MetricsHandler metricsHandler = new MetricsHandler();
+        metricsHandler.register("lookups", urlService::getLookupMetrics);
+        metricsHandler.register("cache", urlService::getCacheMetrics);
+        metricsHandler.register("codeGenerator", urlService::getCodeGeneratorMetrics);
+        metricsHandler.register("dedup", urlService::getDedupMetrics);
+        metricsHandler.register("topLinks", urlService::getTopLinksMetrics);
+        metricsHandler.register("visitors", urlService::getVisitorMetrics);
+        metricsHandler.register("breakdowns", urlService::getBreakdownMetrics);
+        metricsHandler.register("searchIndex", urlService::getSearchIndexMetrics);
+        metricsHandler.register("idempotency", idempotencyCache::getMetrics);
+        metricsHandler.register("database", urlService::getDatabaseMetrics);
+        // Metrics name links and internal limits, so the route only exists when asked for.
+        HttpContext metricsContext = config.isMetricsEnabled() ? server.createContext("/metrics", metricsHandler) : null;
+
+        if (config.isRateLimitEnabled()) {
+            if (!config.isForwardedForTrusted()) {
+                System.err.println("Warning: rate limiting keys on the socket address; behind a proxy all clients "
+                    + "share one bucket unless server.trust.forwarded.for=true");
+            }
+            long idleMillis = config.getRateLimitIdleSeconds() * 1000L;
+            RateLimiter shortenLimiter = new RateLimiter(config.getShortenRatePerSecond(),
+                config.getShortenBurst(), config.getRateLimitMaxClients(), idleMillis);
+            RateLimiter redirectLimiter = new RateLimiter(config.getRedirectRatePerSecond(),
+                config.getRedirectBurst(), config.getRateLimitMaxClients(), idleMillis);
+
+            shortenContext.getFilters().add(new RateLimitFilter(shortenLimiter, config.isForwardedForTrusted()));
+            redirectContext.getFilters().add(new RateLimitFilter(redirectLimiter, config.isForwardedForTrusted()));
+
+            metricsHandler.register("rateLimitShorten", () -> rateLimiterMetrics(shortenLimiter));
+            metricsHandler.register("rateLimitRedirect", () -> rateLimiterMetrics(redirectLimiter));
+        }
+
+        // Added after the rate limiters so requests they reject never take a slot.
+        if (config.isAdmissionControlEnabled()) {
+            AdaptiveConcurrencyLimiter admission = new AdaptiveConcurrencyLimiter(
+                config.getAdmissionInitialLimit(), config.getAdmissionMinLimit(), config.getAdmissionMaxLimit(),
+                config.getAdmissionLatencyThresholdMillis(), config.getAdmissionBackoffRatio(),
+                config.getAdmissionRedirectReserve());
+            urlService.setDatabaseLatencyListener(admission);
+
+            redirectContext.getFilters().add(new AdmissionFilter(admission, true));
+            shortenContext.getFilters().add(new AdmissionFilter(admission, false));
+            analyticsContext.getFilters().add(new AdmissionFilter(admission, false));
+            listContext.getFilters().add(new AdmissionFilter(admission, false));
+            searchContext.getFilters().add(new AdmissionFilter(admission, false));
+
+            metricsHandler.register("admission", admission::getMetrics);
+        }
         
-        server.createContext("/health", exchange -> {
-            String response = "{\"status\":\"healthy\",\"timestamp\":\"" + 
+        HttpContext healthContext = server.createContext("/health", exchange -> {
+            String response = "{\"status\":\"" + (ready ? "healthy" : "warming") + "\",\"timestamp\":\"" + 
                 java.time.LocalDateTime.now().toString() + "\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
-            exchange.sendResponseHeaders(200, response.length());
+            exchange.sendResponseHeaders(ready ? 200 : 503, response.length());
             exchange.getResponseBody().write(response.getBytes());
             exchange.close();
         });
+
+        // Each route gets its own pool so a backlog of shortens or analytics can't starve
+        // redirects, and /health keeps answering when everything else is saturated.
+        int threads = config.getServerThreads();
+        BulkheadFilter redirectPool = bulkhead("redirect", threads, threads * 100);
+        BulkheadFilter shortenPool = bulkhead("shorten", Math.max(2, threads / 2), threads * 20);
+        BulkheadFilter analyticsPool = bulkhead("analytics", Math.max(2, threads / 4), threads * 10);
+        BulkheadFilter adminPool = bulkhead("admin", 2, 20);
+        BulkheadFilter defaultPool = bulkhead("default", 2, 50);
+        BulkheadFilter healthPool = bulkhead("health", 1, 16);
+
+        redirectContext.getFilters().add(0, redirectPool);
+        shortenContext.getFilters().add(0, shortenPool);
+        analyticsContext.getFilters().add(0, analyticsPool);
+        listContext.getFilters().add(0, adminPool);
+        searchContext.getFilters().add(0, adminPool);
+        homeContext.getFilters().add(0, defaultPool);
+        if (metricsContext != null) {
+            metricsContext.getFilters().add(0, adminPool);
+        }
+        healthContext.getFilters().add(0, healthPool);
+
+        metricsHandler.register("executors", () -> {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            for (BulkheadFilter bulkhead : bulkheads) {
+                metrics.put(bulkhead.getName(), bulkhead.getMetrics());
+            }
+            return metrics;
+        });
+    }
+
+    private BulkheadFilter bulkhead(String route, int defaultThreads, int defaultQueue) {
+        BulkheadFilter bulkhead = new BulkheadFilter(route,
+            Math.max(1, config.getRoutePoolThreads(route, defaultThreads)),
+            config.getRoutePoolQueue(route, defaultQueue));
+        bulkheads.add(bulkhead);
+        return bulkhead;
+    }
+
+    private static Map<String, ?> rateLimiterMetrics(RateLimiter limiter) {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("allowed", limiter.getAllowedCount());
+        metrics.put("rejected", limiter.getRejectedCount());
+        metrics.put("trackedClients", limiter.getTrackedClients());
+        return metrics;
     }
 
+    // A small dispatcher pool runs only the first filter of each chain, the BulkheadFilter,
+    // which moves the actual work onto that route's pool. The accept thread never runs
+    // filter code, so a slow 503 write can't hold up accepting new connections.
     private void setupServer() {
-        server.setExecutor(Executors.newFixedThreadPool(config.getServerThreads()));
+        AtomicInteger threadCount = new AtomicInteger();
+        dispatcher = Executors.newFixedThreadPool(Math.max(1, config.getRoutePoolThreads("dispatch", 2)), r -> {
+            Thread thread = new Thread(r, "http-dispatch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(dispatcher);
     }
 
     public void start() {
         server.start();
         
         config.printConfiguration();
+
+        // A usable snapshot already holds the hot set, so the warm-up queries are skipped.
+        boolean restored = urlService.loadCacheSnapshot() >= 0;
+        if (!restored && config.isCacheEnabled() && config.isCacheWarmupEnabled()) {
+            new CacheWarmer(urlService.getDatabase(), urlService, config).run();
+        }
+        ready = true;
+
+        // Searches answer 503 until this finishes; redirects don't depend on it.
+        Thread searchIndexBuilder = new Thread(urlService::buildSearchIndex, "search-index-builder");
+        searchIndexBuilder.setDaemon(true);
+        searchIndexBuilder.start();
         
         System.out.println("\nURL Shortener Server started successfully!");
         System.out.println("Server running on: " + baseUrl);
@@ -72,6 +205,11 @@ public class URLShortenerServer {
     public void stop() {
         System.out.println("\nShutting down server...");
         server.stop(1);
+        dispatcher.shutdown();
+        for (BulkheadFilter bulkhead : bulkheads) {
+            bulkhead.shutdown();
+        }
+        urlService.saveCacheSnapshot();
         
         try {
             urlService.close();
@@ -84,6 +222,24 @@ public class URLShortenerServer {
     }
 
     public static void main(String[] args) {
+        if (args.length > 0 && "reshard".equals(args[0])) {
+            Resharder.main(args);
+            return;
+        }
+        if (args.length > 0 && "loadtest".equals(args[0])) {
+            LoadTest.main(args);
+            return;
+        }
+        if (args.length > 0 && "cds-train".equals(args[0])) {
+            try {
+                ClassDataTraining.main(args);
+            } catch (Exception e) {
+                System.err.println("CDS training run failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
         try {
             AppConfig config = AppConfig.getInstance();
             
@@ -134,7 +290,11 @@ public class URLShortenerServer {
     }
 
     private static void printUsage() {
-        System.out.println("Usage: java -jar url-shortener.jar [OPTIONS]");
+        System.out.println("Usage: java -jar url-shortener.jar [COMMAND] [OPTIONS]");
+        System.out.println("Commands:");
+        System.out.println("  reshard              Move rows onto the shards selected by db.shard.count");
+        System.out.println("  cds-train            Class-loading run used to build the AppCDS archive");
+        System.out.println("  loadtest             Open-loop load test with a latency report (loadtest --help)");
         System.out.println("Options:");
         System.out.println("  -p, --port <port>    Server port (default: 8080)");
         System.out.println("  -h, --host <host>    Server host (default: localhost)");
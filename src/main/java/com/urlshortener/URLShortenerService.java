@@ -1,125 +1,659 @@
 package com.urlshortener;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class URLShortenerService {
     private final URLDatabase database;
+    private final SingleFlight<String, Optional<URLEntry>> lookups;
+    private final SingleFlight<String, Optional<RedirectTarget>> redirectLookups;
+    private final boolean inlineClickCount;
+    private final RedirectCache cache;
+    private final InvalidationListener invalidationListener;
+    private final SnowflakeIdGenerator snowflake;
+    private final ShortCodePool codePool;
+    private final int reservationMaxAgeDays;
+    private final int expiryHorizonDays;
+    private final UrlDeduplicator deduplicator;
+    private final LongAdder codeCollisions = new LongAdder();
+    private final Path snapshotPath;
+    private final long snapshotMaxAgeMillis;
+    private final ThreadPoolExecutor verifier;
+    private final Set<String> verifying = ConcurrentHashMap.newKeySet();
+    private final LongAdder snapshotVerified = new LongAdder();
+    private final LongAdder snapshotDropped = new LongAdder();
+    private final HeavyHitters heavyHitters;
+    private final VisitorTracker visitorTracker;
+    private final ClickBreakdowns clickBreakdowns;
+    private final UrlSearchIndex searchIndex;
+    private final ThreadPoolExecutor searchSync;
+    private volatile boolean searchIndexReady;
     private static final int DEFAULT_SHORT_CODE_LENGTH = 6;
     private static final int MAX_RETRY_ATTEMPTS = 5;
 
     public URLShortenerService() throws SQLException {
-        this.database = new URLDatabase();
+        this(new URLDatabase());
     }
 
     public URLShortenerService(URLDatabase database) {
+        AppConfig config = AppConfig.getInstance();
         this.database = database;
+        this.lookups = new SingleFlight<>(config.getLookupTimeoutMillis());
+        this.redirectLookups = new SingleFlight<>(config.getLookupTimeoutMillis());
+        this.inlineClickCount = config.isRedirectInlineClickCount();
+        this.cache = new RedirectCache(config.isCacheEnabled() ? config.getCacheMaxEntries() : 0,
+            config.getCachePrefixDictionarySize());
+
+        if (config.isCacheEnabled() && config.isCacheInvalidationEnabled()) {
+            this.invalidationListener = new InvalidationListener(database.getShards());
+            invalidationListener.subscribe(cache);
+            invalidationListener.start();
+        } else {
+            this.invalidationListener = null;
+        }
+
+        if (config.isSearchIndexEnabled()) {
+            this.searchIndex = new UrlSearchIndex();
+            database.setDeletionListener(codes -> codes.forEach(searchIndex::remove));
+            // Links created or expired on other nodes arrive as invalidations; unknown codes are
+            // looked up off the listener thread, and dropped if the queue is full.
+            this.searchSync = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(10000), r -> {
+                    Thread thread = new Thread(r, "search-index-sync");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+            if (invalidationListener != null) {
+                invalidationListener.subscribe(new InvalidationListener.Subscriber() {
+                    @Override
+                    public void invalidate(List<String> shortCodes) {
+                        syncSearchIndex(shortCodes);
+                    }
+
+                    @Override
+                    public void invalidateAll() {
+                        searchIndex.removeExpired(nowEpochSeconds());
+                    }
+                });
+            }
+        } else {
+            this.searchIndex = null;
+            this.searchSync = null;
+        }
+
+        if ("snowflake".equalsIgnoreCase(config.getCodeGenerator())) {
+            if (config.getNodeId() < 0) {
+                throw new IllegalStateException(
+                    "app.code.generator=snowflake needs a unique node id in NODE_ID or app.node.id");
+            }
+            this.snowflake = new SnowflakeIdGenerator(config.getNodeId(), config.getMaxClockSkewMillis());
+        } else {
+            this.snowflake = null;
+        }
+
+        if ("pool".equalsIgnoreCase(config.getCodeGenerator())) {
+            this.codePool = new ShortCodePool(database::reserveShortCodes, DEFAULT_SHORT_CODE_LENGTH,
+                config.getCodePoolCapacity(), config.getCodePoolLowWatermark(), config.getCodePoolBatchSize());
+        } else {
+            this.codePool = null;
+        }
+        this.reservationMaxAgeDays = config.getCodeReservationMaxAgeDays();
+        this.expiryHorizonDays = config.getPartitionPrecreateDays();
+        this.deduplicator = config.isDedupEnabled() ? new UrlDeduplicator(config.getDedupCacheEntries()) : null;
+
+        if (config.isTopLinksEnabled()) {
+            this.heavyHitters = new HeavyHitters(config.getTopLinksCapacity(), config.getTopLinksMaxKeysPerSlice());
+            heavyHitters.start();
+        } else {
+            this.heavyHitters = null;
+        }
+
+        if (config.isVisitorTrackingEnabled()) {
+            this.visitorTracker = new VisitorTracker(database::mergeVisitorSketches,
+                config.getVisitorMaxPendingSketches());
+            visitorTracker.start(config.getVisitorFlushSeconds());
+            visitorTracker.startRetention(database::deleteVisitorSketchesBefore, config.getVisitorRetentionDays());
+        } else {
+            this.visitorTracker = null;
+        }
+
+        if (config.isClickBreakdownEnabled()) {
+            this.clickBreakdowns = new ClickBreakdowns(database::writeClickBreakdowns,
+                config.getClickBreakdownTopValues(), config.getClickBreakdownMaxPendingGroups());
+            clickBreakdowns.start(config.getClickBreakdownFlushSeconds());
+        } else {
+            this.clickBreakdowns = null;
+        }
+
+        if (config.isCacheEnabled() && config.isCacheSnapshotEnabled()) {
+            this.snapshotPath = Paths.get(config.getCacheSnapshotPath());
+            this.snapshotMaxAgeMillis = TimeUnit.MINUTES.toMillis(config.getCacheSnapshotMaxAgeMinutes());
+            // Verification is best effort: when the queue is full the entry is retried on its next hit.
+            this.verifier = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(10000), r -> {
+                    Thread thread = new Thread(r, "snapshot-verifier");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        } else {
+            this.snapshotPath = null;
+            this.snapshotMaxAgeMillis = 0;
+            this.verifier = null;
+        }
     }
 
-    public ShortenResult shortenUrl(String originalUrl, LocalDateTime expiresAt, String customAlias) throws SQLException {
+    // expiresAt is epoch millis, or URLEntry.NO_EXPIRY.
+    public ShortenResult shortenUrl(String originalUrl, long expiresAt, String customAlias) throws SQLException {
         originalUrl = URLValidator.normalizeUrl(originalUrl);
         if (!URLValidator.isValidUrl(originalUrl)) {
             return new ShortenResult(false, "Invalid URL format", null);
         }
 
-        if (customAlias != null && !customAlias.trim().isEmpty()) {
-            if (!URLValidator.isValidAlias(customAlias)) {
-                return new ShortenResult(false, "Invalid custom alias format", null);
-            }
-            
-            if (database.customAliasExists(customAlias)) {
-                return new ShortenResult(false, "Custom alias already exists", null);
+        boolean hasAlias = customAlias != null && !customAlias.trim().isEmpty();
+        if (hasAlias && !URLValidator.isValidAlias(customAlias)) {
+            return new ShortenResult(false, "Invalid custom alias format", null);
+        }
+        if (!database.acceptsExpiry(expiresAt)) {
+            return new ShortenResult(false, "Expiry date must be within the next "
+                + expiryHorizonDays + " days", null);
+        }
+
+        // Only plain links are shared: an alias or expiry makes the caller's link distinct.
+        byte[] urlHash = null;
+        if (deduplicator != null && !hasAlias && expiresAt == URLEntry.NO_EXPIRY) {
+            urlHash = UrlDeduplicator.hash(originalUrl);
+            URLEntry existing = findDuplicate(urlHash);
+            if (existing != null) {
+                return new ShortenResult(true, "URL already shortened", existing);
             }
         }
 
-        String shortCode;
-        
-        if (customAlias != null && !customAlias.trim().isEmpty()) {
-            shortCode = customAlias;
+        // The insert itself is the uniqueness check: a taken alias or code comes back as
+        // "nothing inserted", so there is no check-then-insert race and no extra round trip.
+        URLEntry urlEntry;
+        if (hasAlias) {
+            Optional<URLEntry> saved = database.saveURL(
+                new URLEntry(customAlias, originalUrl, expiresAt).withCustomAlias(customAlias), urlHash);
+            if (saved.isEmpty()) {
+                return new ShortenResult(false, "Custom alias already exists", null);
+            }
+            urlEntry = saved.get();
         } else {
-            shortCode = generateUniqueShortCode();
-            if (shortCode == null) {
+            urlEntry = null;
+            boolean starved = false;
+            long start = System.nanoTime();
+            for (int attempt = 0; attempt < MAX_RETRY_ATTEMPTS && urlEntry == null; attempt++) {
+                String shortCode = codePool != null ? codePool.poll() : null;
+                starved |= codePool != null && shortCode == null;
+                Optional<URLEntry> saved = database.saveURL(
+                    new URLEntry(shortCode != null ? shortCode : nextShortCode(), originalUrl, expiresAt), urlHash);
+                if (saved.isPresent()) {
+                    urlEntry = saved.get();
+                } else {
+                    codeCollisions.increment();
+                }
+            }
+            // The slow path is the unchecked insert and any collision retries, not the
+            // random draw itself.
+            if (starved) {
+                codePool.recordStarvation(System.nanoTime() - start);
+            }
+            if (urlEntry == null) {
                 return new ShortenResult(false, "Failed to generate unique short code", null);
             }
         }
 
-        URLEntry urlEntry = new URLEntry(shortCode, originalUrl, expiresAt);
-        if (customAlias != null && !customAlias.trim().isEmpty()) {
-            urlEntry.setCustomAlias(customAlias);
+        if (urlHash != null) {
+            deduplicator.remember(urlHash, urlEntry);
         }
+        indexForSearch(urlEntry);
+        return new ShortenResult(true, "URL shortened successfully", urlEntry);
+    }
 
-        if (database.saveURL(urlEntry)) {
-            return new ShortenResult(true, "URL shortened successfully", urlEntry);
-        } else {
-            return new ShortenResult(false, "Failed to save URL", null);
+    private URLEntry findDuplicate(byte[] urlHash) throws SQLException {
+        URLEntry existing = deduplicator.getRecent(urlHash);
+        if (existing != null) {
+            return existing;
         }
+
+        Optional<URLEntry> stored = database.findByUrlHash(urlHash);
+        if (stored.isPresent()) {
+            deduplicator.recordDatabaseHit();
+            deduplicator.remember(urlHash, stored.get());
+            return stored.get();
+        }
+        return null;
     }
 
     public ShortenResult shortenUrl(String originalUrl) throws SQLException {
-        return shortenUrl(originalUrl, null, null);
+        return shortenUrl(originalUrl, URLEntry.NO_EXPIRY, null);
     }
 
     public RedirectResult redirect(String shortCode) throws SQLException {
-        Optional<URLEntry> urlEntryOpt = database.findByShortCode(shortCode);
-        
-        if (urlEntryOpt.isEmpty()) {
-            urlEntryOpt = database.findByCustomAlias(shortCode);
+        return redirect(shortCode, null, null);
+    }
+
+    // visitor identifies the client (address and user agent) for unique-visitor estimates;
+    // only its hash is kept. Either may be null when the caller has no request to describe.
+    public RedirectResult redirect(String shortCode, String visitor, ClickDimensions dimensions)
+            throws SQLException {
+        CompactRedirect cached = cache.get(shortCode);
+
+        if (cached != null) {
+            if (!cached.isVerified()) {
+                scheduleVerification(shortCode);
+            }
+            if (cached.isExpired()) {
+                return new RedirectResult(false, "URL has expired", null);
+            }
+
+            String canonical = cached.getShortCode(shortCode);
+            database.incrementClickCount(canonical);
+            recordHit(canonical, visitor, dimensions);
+
+            return new RedirectResult(true, "Redirect successful", cache.getOriginalUrl(cached));
         }
-        
-        if (urlEntryOpt.isEmpty()) {
+
+        long cacheGeneration = cache.beginLoad(shortCode);
+        // When the click is counted inline every request writes anyway, so there is nothing
+        // to coalesce; otherwise concurrent misses share one read.
+        Optional<RedirectTarget> resolved = inlineClickCount
+            ? database.resolveRedirect(shortCode, true)
+            : redirectLookups.execute(shortCode, () -> database.resolveRedirect(shortCode, false));
+
+        if (resolved.isEmpty()) {
             return new RedirectResult(false, "Short code not found", null);
         }
 
-        URLEntry urlEntry = urlEntryOpt.get();
+        RedirectTarget target = resolved.get();
+        cache.put(shortCode, target, cacheGeneration);
 
-        if (urlEntry.isExpired()) {
+        if (target.isExpired()) {
             return new RedirectResult(false, "URL has expired", null);
         }
 
-        database.incrementClickCount(urlEntry.getShortCode());
+        if (!inlineClickCount) {
+            database.incrementClickCount(target.getShortCode());
+        }
+        recordHit(target.getShortCode(), visitor, dimensions);
+
+        return new RedirectResult(true, "Redirect successful", target.getOriginalUrl());
+    }
+
+    private void recordHit(String shortCode, String visitor, ClickDimensions dimensions) {
+        if (heavyHitters != null) {
+            heavyHitters.record(shortCode);
+        }
+        if (visitorTracker != null && visitor != null) {
+            visitorTracker.record(shortCode, HyperLogLog.hash(visitor));
+        }
+        if (clickBreakdowns != null && dimensions != null) {
+            clickBreakdowns.record(shortCode, dimensions);
+        }
+    }
+
+    // The n largest values over the last hours, with everything else summed into "(other)".
+    // Returns null when breakdowns are disabled. Clicks from the current flush interval are not
+    // included yet.
+    public Map<String, Long> getClickBreakdown(String shortCode, ClickDimensions.Dimension dimension,
+            int hours, int n) throws SQLException {
+        if (clickBreakdowns == null) {
+            return null;
+        }
+        LocalDateTime since = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS).minusHours(hours - 1);
+        Map<String, Long> breakdown = new LinkedHashMap<>();
+        long other = 0;
+        for (Map.Entry<String, Long> entry : database.findClickBreakdown(shortCode, dimension, since).entrySet()) {
+            if (breakdown.size() < n && !ClickBreakdowns.OTHER.equals(entry.getKey())) {
+                breakdown.put(entry.getKey(), entry.getValue());
+            } else {
+                other += entry.getValue();
+            }
+        }
+        if (other > 0) {
+            breakdown.put(ClickBreakdowns.OTHER, other);
+        }
+        return breakdown;
+    }
+
+    // Stored sketches from every node plus this node's unflushed ones; -1 when tracking is off.
+    public long getUniqueVisitors(String shortCode) throws SQLException {
+        if (visitorTracker == null) {
+            return -1;
+        }
+        HyperLogLog visitors = visitorTracker.pendingFor(shortCode);
+        for (byte[] sketch : database.findVisitorSketches(shortCode)) {
+            visitors.merge(HyperLogLog.fromBytes(sketch));
+        }
+        return visitors.estimate();
+    }
+
+    // Empty when tracking is disabled; never touches the database.
+    public List<HeavyHitters.Item> getTopLinks(HeavyHitters.Window window, int n) {
+        if (heavyHitters == null) {
+            return List.of();
+        }
+        return heavyHitters.top(window, n);
+    }
+
+    // Snapshot entries may have changed or been deleted while this node was down, so the first
+    // hit serves the stored target and re-reads the row in the background.
+    private void scheduleVerification(String key) {
+        if (verifier == null || !verifying.add(key)) {
+            return;
+        }
+        try {
+            verifier.execute(() -> {
+                try {
+                    verifySnapshotEntry(key);
+                } finally {
+                    verifying.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            verifying.remove(key);
+        }
+    }
+
+    private void verifySnapshotEntry(String key) {
+        long cacheGeneration = cache.beginLoad(key);
+        try {
+            Optional<URLEntry> current = lookup(key);
+            if (current.isPresent()) {
+                cache.put(key, current.get(), cacheGeneration);
+                snapshotVerified.increment();
+            } else {
+                cache.invalidate(List.of(key));
+                snapshotDropped.increment();
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to verify cached entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    public int loadCacheSnapshot() {
+        if (snapshotPath == null) {
+            return -1;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            int restored = RedirectSnapshot.load(snapshotPath, cache, snapshotMaxAgeMillis);
+            if (restored >= 0) {
+                System.out.println("Restored " + restored + " cached links from " + snapshotPath + " in "
+                    + (System.currentTimeMillis() - started) + "ms");
+            }
+            return restored;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to load cache snapshot " + snapshotPath + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    public void saveCacheSnapshot() {
+        if (snapshotPath == null) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            int written = RedirectSnapshot.write(snapshotPath, cache);
+            System.out.println("Wrote " + written + " cached links to " + snapshotPath + " in "
+                + (System.currentTimeMillis() - started) + "ms");
+        } catch (IOException e) {
+            System.err.println("Failed to write cache snapshot " + snapshotPath + ": " + e.getMessage());
+        }
+    }
+
+    // Entries loaded outside a request; aliased links are reachable under both keys.
+    public int preloadCache(List<URLEntry> entries) {
+        for (URLEntry entry : entries) {
+            cache.put(entry.getShortCode(), entry, cache.beginLoad(entry.getShortCode()));
+            if (entry.getCustomAlias() != null) {
+                cache.put(entry.getCustomAlias(), entry, cache.beginLoad(entry.getCustomAlias()));
+            }
+        }
+        return entries.size();
+    }
+
+    public int getCachedEntryCount() {
+        return cache.size();
+    }
+
+    public void setDatabaseLatencyListener(DatabaseLatencyListener latencyListener) {
+        database.setLatencyListener(latencyListener);
+    }
+
+    public URLDatabase getDatabase() {
+        return database;
+    }
+
+    // Streams every row into the search index; links shortened meanwhile are added as usual.
+    public void buildSearchIndex() {
+        if (searchIndex == null) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            database.forEachUrl(this::indexForSearch);
+            searchIndexReady = true;
+            System.out.println("Search index loaded " + searchIndex.getMetrics().get("links") + " links in "
+                + (System.currentTimeMillis() - started) + "ms");
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Failed to build search index: " + e.getMessage());
+        }
+    }
+
+    // Also true when the index is disabled, so searches get "disabled" rather than "loading".
+    public boolean isSearchIndexReady() {
+        return searchIndex == null || searchIndexReady;
+    }
+
+    // Null when the index is disabled.
+    public List<UrlSearchIndex.Hit> searchUrls(String host, String prefix, int limit) {
+        if (searchIndex == null) {
+            return null;
+        }
+        return searchIndex.search(host, prefix, limit, nowEpochSeconds());
+    }
 
-        return new RedirectResult(true, "Redirect successful", urlEntry.getOriginalUrl());
+    private void indexForSearch(URLEntry entry) {
+        if (searchIndex != null) {
+            searchIndex.add(entry.getShortCode(), entry.getOriginalUrl(), entry.getExpiresAtMillis() / 1000);
+        }
+    }
+
+    private void syncSearchIndex(List<String> shortCodes) {
+        long now = nowEpochSeconds();
+        for (String shortCode : shortCodes) {
+            if (searchIndex.contains(shortCode)) {
+                if (searchIndex.isExpired(shortCode, now)) {
+                    searchIndex.remove(shortCode);
+                }
+                continue;
+            }
+            searchSync.execute(() -> {
+                try {
+                    Optional<URLEntry> entry = database.findByShortCode(shortCode);
+                    if (entry.isPresent() && !entry.get().isExpired()) {
+                        indexForSearch(entry.get());
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Failed to index " + shortCode + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private static long nowEpochSeconds() {
+        return CoarseClock.millis() / 1000;
+    }
+
+    public List<UrlListing.Row> listUrls(UrlListing.Cursor after, int limit, UrlListing.Filter filter)
+            throws SQLException {
+        return database.listUrls(after, limit, filter);
     }
 
     public Optional<URLEntry> getAnalytics(String shortCode) throws SQLException {
-        Optional<URLEntry> urlEntryOpt = database.findByShortCode(shortCode);
-        
-        if (urlEntryOpt.isEmpty()) {
-            urlEntryOpt = database.findByCustomAlias(shortCode);
+        return lookup(shortCode);
+    }
+
+    private Optional<URLEntry> lookup(String shortCode) throws SQLException {
+        return lookups.execute(shortCode, () -> {
+            Optional<URLEntry> urlEntryOpt = database.findByShortCode(shortCode);
+
+            if (urlEntryOpt.isEmpty()) {
+                urlEntryOpt = database.findByCustomAlias(shortCode);
+            }
+
+            return urlEntryOpt;
+        });
+    }
+
+    public Map<String, Object> getLookupMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("coalesced", lookups.getCoalescedCount() + redirectLookups.getCoalescedCount());
+        metrics.put("inFlight", lookups.getInFlightCount() + redirectLookups.getInFlightCount());
+        return metrics;
+    }
+
+    public Map<String, Object> getCacheMetrics() {
+        Map<String, Object> metrics = cache.getMetrics();
+        if (verifier != null) {
+            metrics.put("snapshotVerified", snapshotVerified.sum());
+            metrics.put("snapshotDropped", snapshotDropped.sum());
+        }
+        if (invalidationListener != null) {
+            metrics.put("invalidationListener", invalidationListener.getMetrics());
+        }
+        return metrics;
+    }
+
+    public Map<String, Object> getCodeGeneratorMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        if (codePool != null) {
+            metrics.putAll(codePool.getMetrics());
+        } else if (snowflake != null) {
+            metrics.putAll(snowflake.getMetrics());
+        }
+        metrics.put("insertCollisions", codeCollisions.sum());
+        return metrics;
+    }
+
+    public Map<String, Object> getTopLinksMetrics() {
+        if (heavyHitters != null) {
+            return heavyHitters.getMetrics();
+        }
+        return new LinkedHashMap<>();
+    }
+
+    public Map<String, Object> getVisitorMetrics() {
+        if (visitorTracker != null) {
+            return visitorTracker.getMetrics();
+        }
+        return new LinkedHashMap<>();
+    }
+
+    public Map<String, Object> getBreakdownMetrics() {
+        if (clickBreakdowns != null) {
+            return clickBreakdowns.getMetrics();
+        }
+        return new LinkedHashMap<>();
+    }
+
+    public Map<String, Object> getSearchIndexMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        if (searchIndex != null) {
+            metrics.put("ready", searchIndexReady);
+            metrics.putAll(searchIndex.getMetrics());
+            metrics.put("pendingSync", searchSync.getQueue().size());
+        }
+        return metrics;
+    }
+
+    public Map<String, Object> getDedupMetrics() {
+        if (deduplicator != null) {
+            return deduplicator.getMetrics();
         }
-        
-        return urlEntryOpt;
+        return new LinkedHashMap<>();
+    }
+
+    public Map<String, Object> getDatabaseMetrics() {
+        return database.getMetrics();
     }
 
     public int cleanupExpiredUrls() throws SQLException {
+        if (codePool != null) {
+            database.deleteStaleReservations(reservationMaxAgeDays);
+        }
         return database.deleteExpiredUrls();
     }
 
-    private String generateUniqueShortCode() throws SQLException {
-        for (int attempt = 0; attempt < MAX_RETRY_ATTEMPTS; attempt++) {
+    // Candidates are not checked up front; saveURL rejects a taken code and shortenUrl retries.
+    // With a code pool this is only reached once the pool has run dry.
+    private String nextShortCode() {
+        if (codePool != null) {
+            return Base62Encoder.generateRandomCode(DEFAULT_SHORT_CODE_LENGTH);
+        }
+
+        if (snowflake != null) {
             try {
-                long nextId = database.getNextId();
-                String shortCode = Base62Encoder.encode(nextId);
-                
-                if (shortCode.length() < DEFAULT_SHORT_CODE_LENGTH) {
-                    shortCode = Base62Encoder.generateRandomCode(DEFAULT_SHORT_CODE_LENGTH);
-                }
-                
-                if (!database.shortCodeExists(shortCode)) {
-                    return shortCode;
-                }
-            } catch (Exception e) {
-                String randomCode = Base62Encoder.generateRandomCode(DEFAULT_SHORT_CODE_LENGTH);
-                if (!database.shortCodeExists(randomCode)) {
-                    return randomCode;
-                }
+                return Base62Encoder.encode(snowflake.nextId());
+            } catch (IllegalStateException e) {
+                System.err.println("Warning: " + e.getMessage() + ", falling back to database sequence");
             }
         }
-        return null;
+
+        try {
+            String shortCode = Base62Encoder.encode(database.getNextId());
+            if (shortCode.length() < DEFAULT_SHORT_CODE_LENGTH) {
+                shortCode = Base62Encoder.generateRandomCode(DEFAULT_SHORT_CODE_LENGTH);
+            }
+            return shortCode;
+        } catch (Exception e) {
+            return Base62Encoder.generateRandomCode(DEFAULT_SHORT_CODE_LENGTH);
+        }
     }
 
     public void close() throws SQLException {
+        if (verifier != null) {
+            verifier.shutdownNow();
+        }
+        if (heavyHitters != null) {
+            heavyHitters.close();
+        }
+        if (visitorTracker != null) {
+            visitorTracker.close();
+        }
+        if (clickBreakdowns != null) {
+            clickBreakdowns.close();
+        }
+        if (searchSync != null) {
+            searchSync.shutdownNow();
+        }
+        if (invalidationListener != null) {
+            invalidationListener.stop();
+        }
+        if (codePool != null) {
+            List<String> unused = codePool.close();
+            if (!unused.isEmpty()) {
+                database.releaseShortCodes(unused);
+            }
+        }
         if (database != null) {
             database.close();
         }
@@ -4,6 +4,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public class URLValidator {
@@ -17,6 +18,9 @@ public class URLValidator {
         FILE_PATTERN
     };
 
+    // Aliases that would be shadowed by fixed routes such as /analytics/top.
+    private static final Set<String> RESERVED_ALIASES = Set.of("top");
+
     public static boolean isValidUrl(String urlString) {
         if (urlString == null || urlString.trim().isEmpty()) {
             return false;
@@ -94,6 +98,6 @@ public class URLValidator {
             return false;
         }
         
-        return alias.matches("^[a-zA-Z0-9_-]{3,50}$");
+        return alias.matches("^[a-zA-Z0-9_-]{3,50}$") && !RESERVED_ALIASES.contains(alias);
     }
 }
@@ -0,0 +1,110 @@
+package com.urlshortener;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class UrlDeduplicator {
+    public static final int HASH_LENGTH = 16;
+
+    private final ConcurrentHashMap<String, URLEntry> recent = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder databaseHits = new LongAdder();
+
+    public UrlDeduplicator(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    // First 128 bits of SHA-256 over the canonical form; collisions are not a practical
+    // concern at that width, so a hash match is treated as a URL match.
+    public static byte[] hash(String normalizedUrl) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] full = digest.digest(canonicalize(normalizedUrl).getBytes(StandardCharsets.UTF_8));
+            return Arrays.copyOf(full, HASH_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Scheme and host are case-insensitive and default ports are redundant; path, query
+    // and fragment are kept as-is because servers may treat them case-sensitively.
+    static String canonicalize(String url) {
+        try {
+            URI uri = new URI(url);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return url;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if ((scheme.equals("http") && port == 80) || (scheme.equals("https") && port == 443)) {
+                port = -1;
+            }
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+
+            StringBuilder sb = new StringBuilder();
+            sb.append(scheme).append("://");
+            if (uri.getRawUserInfo() != null) {
+                sb.append(uri.getRawUserInfo()).append('@');
+            }
+            sb.append(uri.getHost().toLowerCase(Locale.ROOT));
+            if (port != -1) {
+                sb.append(':').append(port);
+            }
+            sb.append(path);
+            if (uri.getRawQuery() != null) {
+                sb.append('?').append(uri.getRawQuery());
+            }
+            if (uri.getRawFragment() != null) {
+                sb.append('#').append(uri.getRawFragment());
+            }
+            return sb.toString();
+        } catch (URISyntaxException e) {
+            return url;
+        }
+    }
+
+    public URLEntry getRecent(byte[] hash) {
+        URLEntry entry = recent.get(key(hash));
+        if (entry != null) {
+            memoryHits.increment();
+        }
+        return entry;
+    }
+
+    public void recordDatabaseHit() {
+        databaseHits.increment();
+    }
+
+    public void remember(byte[] hash, URLEntry entry) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        if (recent.size() >= maxEntries) {
+            RandomEviction.evict(recent, Math.max(1, maxEntries / 20), (key, evicted) -> { });
+        }
+        recent.put(key(hash), entry);
+    }
+
+    private static String key(byte[] hash) {
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("cached", recent.size());
+        metrics.put("memoryHits", memoryHits.sum());
+        metrics.put("databaseHits", databaseHits.sum());
+        return metrics;
+    }
+}
@@ -0,0 +1,161 @@
+package com.urlshortener;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// GET /urls?limit=&after=&expired=&minClicks= for the admin UI. The body is written entry by
+// entry with chunked encoding rather than built as one JSON document first.
+public class UrlListHandler implements HttpHandler {
+    static final String PATH = "/urls";
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+
+    private final URLShortenerService urlService;
+    private final String baseUrl;
+
+    public UrlListHandler(URLShortenerService urlService, String baseUrl) {
+        this.urlService = urlService;
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendErrorResponse(exchange, 405, "Method not allowed");
+            return;
+        }
+        if (!PATH.equals(exchange.getRequestURI().getPath())) {
+            sendErrorResponse(exchange, 404, "Not found");
+            return;
+        }
+
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        int limit;
+        int minClicks;
+        UrlListing.Cursor after = null;
+        Boolean expired = null;
+        try {
+            limit = Integer.parseInt(params.getOrDefault("limit", String.valueOf(DEFAULT_LIMIT)));
+            minClicks = Integer.parseInt(params.getOrDefault("minClicks", "0"));
+            if (params.containsKey("after")) {
+                after = UrlListing.Cursor.decode(params.get("after"));
+            }
+            if (params.containsKey("expired")) {
+                expired = parseBoolean(params.get("expired"));
+            }
+        } catch (IllegalArgumentException e) {
+            sendErrorResponse(exchange, 400, "Invalid query: " + e.getMessage());
+            return;
+        }
+        if (limit < 1 || minClicks < 0) {
+            sendErrorResponse(exchange, 400, "limit must be positive and minClicks not negative");
+            return;
+        }
+        limit = Math.min(limit, MAX_LIMIT);
+
+        List<UrlListing.Row> rows;
+        try {
+            rows = urlService.listUrls(after, limit, new UrlListing.Filter(expired, minClicks));
+        } catch (Exception e) {
+            e.printStackTrace();
+            sendErrorResponse(exchange, 500, "Internal server error: " + e.getMessage());
+            return;
+        }
+
+        boolean hasMore = rows.size() > limit;
+        int count = Math.min(limit, rows.size());
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            writer.write("{\"success\":true,\"limit\":" + limit + ",\"urls\":[");
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(toJson(rows.get(i).getEntry()).toString());
+            }
+            writer.write("],\"next\":");
+            writer.write(hasMore ? JSONObject.quote(rows.get(count - 1).cursor().encode()) : "null");
+            writer.write('}');
+        }
+    }
+
+    private JSONObject toJson(URLEntry entry) {
+        JSONObject json = new JSONObject();
+        json.put("shortCode", entry.getShortCode());
+        json.put("shortUrl", baseUrl + "/u/" + entry.getShortCode());
+        json.put("originalUrl", entry.getOriginalUrl());
+        json.put("clickCount", entry.getClickCount());
+        json.put("createdAt", formatTimestamp(entry.getCreatedAtMillis()));
+        if (entry.hasExpiry()) {
+            json.put("expiresAt", formatTimestamp(entry.getExpiresAtMillis()));
+            json.put("isExpired", entry.isExpired());
+        }
+        if (entry.getCustomAlias() != null) {
+            json.put("customAlias", entry.getCustomAlias());
+        }
+        return json;
+    }
+
+    // Entries carry epoch millis; the API speaks zone-less local date-times.
+    private static String formatTimestamp(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+            .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    private static Boolean parseBoolean(String value) {
+        if ("true".equalsIgnoreCase(value)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("expired must be true or false");
+    }
+
+    private Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private void sendErrorResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
+        JSONObject errorResponse = new JSONObject();
+        errorResponse.put("success", false);
+        errorResponse.put("error", message);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        byte[] responseBytes = errorResponse.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(statusCode, responseBytes.length);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(responseBytes);
+        }
+    }
+}
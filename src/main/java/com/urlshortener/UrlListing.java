@@ -0,0 +1,126 @@
+package com.urlshortener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Keyset pagination over (created_at, id), newest first. ids come from per-shard sequences
+// and can repeat across shards, so the shard index is the final tie-breaker and part of the
+// cursor. A page costs one index range scan per shard however deep it is.
+public class UrlListing {
+    static final Comparator<Row> NEWEST_FIRST = Comparator
+        .comparingLong((Row row) -> row.createdAtMicros)
+        .thenComparingLong(row -> row.entry.getId())
+        .thenComparingInt(row -> row.shard)
+        .reversed();
+
+    public static final class Cursor {
+        private final long createdAtMicros;
+        private final long id;
+        private final int shard;
+
+        Cursor(long createdAtMicros, long id, int shard) {
+            this.createdAtMicros = createdAtMicros;
+            this.id = id;
+            this.shard = shard;
+        }
+
+        // created_at in microseconds since the epoch, read the way the driver reads the column.
+        public long getCreatedAtMicros() {
+            return createdAtMicros;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public int getShard() {
+            return shard;
+        }
+
+        // Opaque to clients: microseconds since the epoch, id and shard, base64url encoded.
+        public String encode() {
+            String raw = createdAtMicros + "." + id + "." + shard;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\.");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                return new Cursor(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+    }
+
+    public static final class Filter {
+        private final Boolean expired;
+        private final int minClicks;
+
+        // expired: null for all links, true for expired only, false for live only.
+        public Filter(Boolean expired, int minClicks) {
+            this.expired = expired;
+            this.minClicks = minClicks;
+        }
+
+        public Boolean getExpired() {
+            return expired;
+        }
+
+        public int getMinClicks() {
+            return minClicks;
+        }
+    }
+
+    public static final class Row {
+        private final URLEntry entry;
+        private final long createdAtMicros;
+        private final int shard;
+
+        // URLEntry only keeps millis, so the row carries created_at at full precision.
+        Row(URLEntry entry, long createdAtMicros, int shard) {
+            this.entry = entry;
+            this.createdAtMicros = createdAtMicros;
+            this.shard = shard;
+        }
+
+        public URLEntry getEntry() {
+            return entry;
+        }
+
+        public Cursor cursor() {
+            return new Cursor(createdAtMicros, entry.getId(), shard);
+        }
+    }
+
+    // k-way merge of per-shard pages that are each already newest first; returns at most
+    // limit + 1 rows so the caller can tell whether another page exists.
+    static List<Row> merge(List<List<Row>> shardPages, int limit) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) ->
+            NEWEST_FIRST.compare(shardPages.get(a[0]).get(a[1]), shardPages.get(b[0]).get(b[1])));
+        for (int i = 0; i < shardPages.size(); i++) {
+            if (!shardPages.get(i).isEmpty()) {
+                heads.add(new int[] {i, 0});
+            }
+        }
+
+        List<Row> merged = new ArrayList<>(limit + 1);
+        while (!heads.isEmpty() && merged.size() <= limit) {
+            int[] head = heads.poll();
+            List<Row> page = shardPages.get(head[0]);
+            merged.add(page.get(head[1]));
+            if (head[1] + 1 < page.size()) {
+                heads.add(new int[] {head[0], head[1] + 1});
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,126 @@
+package com.urlshortener;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// GET /urls/search?host=&prefix=&limit= answered from the in-memory UrlSearchIndex.
+public class UrlSearchHandler implements HttpHandler {
+    static final String PATH = "/urls/search";
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    private final URLShortenerService urlService;
+    private final String baseUrl;
+
+    public UrlSearchHandler(URLShortenerService urlService, String baseUrl) {
+        this.urlService = urlService;
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendErrorResponse(exchange, 405, "Method not allowed");
+            return;
+        }
+        if (!PATH.equals(exchange.getRequestURI().getPath())) {
+            sendErrorResponse(exchange, 404, "Not found");
+            return;
+        }
+
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String host = blankToNull(params.get("host"));
+        String prefix = blankToNull(params.get("prefix"));
+        if (host == null && prefix == null) {
+            sendErrorResponse(exchange, 400, "host or prefix is required");
+            return;
+        }
+        int limit;
+        try {
+            limit = Integer.parseInt(params.getOrDefault("limit", String.valueOf(DEFAULT_LIMIT)));
+        } catch (NumberFormatException e) {
+            limit = -1;
+        }
+        if (limit < 1) {
+            sendErrorResponse(exchange, 400, "limit must be a positive integer");
+            return;
+        }
+        limit = Math.min(limit, MAX_LIMIT);
+
+        if (!urlService.isSearchIndexReady()) {
+            exchange.getResponseHeaders().set("Retry-After", "5");
+            sendErrorResponse(exchange, 503, "Search index is still loading");
+            return;
+        }
+
+        long started = System.nanoTime();
+        List<UrlSearchIndex.Hit> hits = urlService.searchUrls(host, prefix, limit + 1);
+        long micros = (System.nanoTime() - started) / 1000;
+        if (hits == null) {
+            sendErrorResponse(exchange, 404, "Search is disabled");
+            return;
+        }
+
+        JSONArray results = new JSONArray();
+        for (int i = 0; i < Math.min(limit, hits.size()); i++) {
+            JSONObject result = new JSONObject();
+            result.put("shortCode", hits.get(i).getShortCode());
+            result.put("shortUrl", baseUrl + "/u/" + hits.get(i).getShortCode());
+            result.put("originalUrl", hits.get(i).getOriginalUrl());
+            results.put(result);
+        }
+
+        JSONObject response = new JSONObject();
+        response.put("success", true);
+        response.put("results", results);
+        response.put("truncated", hits.size() > limit);
+        response.put("tookMicros", micros);
+        sendResponse(exchange, 200, response.toString());
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(statusCode, responseBytes.length);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(responseBytes);
+        }
+    }
+
+    private void sendErrorResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
+        JSONObject errorResponse = new JSONObject();
+        errorResponse.put("success", false);
+        errorResponse.put("error", message);
+        sendResponse(exchange, statusCode, errorResponse.toString());
+    }
+}
@@ -0,0 +1,531 @@
+package com.urlshortener;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Answers "which links point at this host / path prefix" without scanning urls. Hosts are
+// stored reversed ("moc.elpmaxe") in a radix trie so a domain and all its subdomains share
+// one subtree; path and query tokens map to sorted doc-id postings. Candidates from both
+// are intersected and then checked against the stored URL, so the indexes only have to be
+// selective, never exact.
+public class UrlSearchIndex {
+    // A partial last token matching more distinct tokens than this is cheaper to verify
+    // directly than to union.
+    private static final int MAX_PREFIX_TOKENS = 256;
+    private static final int MIN_COMPACT_DOCS = 10000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> docsByCode = new HashMap<>();
+    private final List<String> codes = new ArrayList<>();
+    private final List<String> urls = new ArrayList<>();
+    private long[] expiresAt = new long[1024];
+    private HostNode hosts = new HostNode("");
+    private final TreeMap<String, IntList> tokens = new TreeMap<>();
+    private int deadDocs;
+
+    public static final class Hit {
+        private final String shortCode;
+        private final String originalUrl;
+
+        Hit(String shortCode, String originalUrl) {
+            this.shortCode = shortCode;
+            this.originalUrl = originalUrl;
+        }
+
+        public String getShortCode() {
+            return shortCode;
+        }
+
+        public String getOriginalUrl() {
+            return originalUrl;
+        }
+    }
+
+    // expiresAtEpochSeconds is 0 for links that never expire.
+    public void add(String shortCode, String originalUrl, long expiresAtEpochSeconds) {
+        ParsedUrl parsed = ParsedUrl.of(originalUrl);
+        lock.writeLock().lock();
+        try {
+            removeLocked(shortCode);
+            int doc = codes.size();
+            codes.add(shortCode);
+            urls.add(originalUrl);
+            if (doc == expiresAt.length) {
+                expiresAt = Arrays.copyOf(expiresAt, doc * 2);
+            }
+            expiresAt[doc] = expiresAtEpochSeconds;
+            docsByCode.put(shortCode, doc);
+
+            if (parsed != null) {
+                hosts.insert(reverse(parsed.host), 0).docs.add(doc);
+                for (String token : tokenize(parsed.rest)) {
+                    IntList postings = tokens.computeIfAbsent(token, t -> new IntList());
+                    if (postings.size == 0 || postings.last() != doc) {
+                        postings.add(doc);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String shortCode) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(shortCode);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(String shortCode) {
+        lock.readLock().lock();
+        try {
+            return docsByCode.containsKey(shortCode);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isExpired(String shortCode, long nowEpochSeconds) {
+        lock.readLock().lock();
+        try {
+            Integer doc = docsByCode.get(shortCode);
+            return doc != null && expiresAt[doc] != 0 && expiresAt[doc] < nowEpochSeconds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int removeExpired(long nowEpochSeconds) {
+        lock.writeLock().lock();
+        try {
+            List<String> expired = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : docsByCode.entrySet()) {
+                long expiry = expiresAt[entry.getValue()];
+                if (expiry != 0 && expiry < nowEpochSeconds) {
+                    expired.add(entry.getKey());
+                }
+            }
+            for (String shortCode : expired) {
+                removeLocked(shortCode);
+            }
+            compactIfNeeded();
+            return expired.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // host matches the host itself and its subdomains; prefix is matched case-insensitively
+    // against the path and query. Either may be null. Expired links are left out.
+    public List<Hit> search(String host, String prefix, int limit, long nowEpochSeconds) {
+        String hostKey = host != null ? reverse(host.toLowerCase(Locale.ROOT)) : null;
+        String pathPrefix = prefix == null ? null : prefix.startsWith("/") ? prefix : "/" + prefix;
+
+        lock.readLock().lock();
+        try {
+            IntList candidates = null;
+            if (hostKey != null) {
+                candidates = hosts.collect(hostKey);
+            }
+            if (pathPrefix != null) {
+                candidates = intersectTokens(candidates, pathPrefix);
+            }
+
+            List<Hit> hits = new ArrayList<>();
+            int count = candidates != null ? candidates.size : codes.size();
+            for (int i = 0; i < count && hits.size() < limit; i++) {
+                int doc = candidates != null ? candidates.data[i] : i;
+                String url = urls.get(doc);
+                if (url == null || (expiresAt[doc] != 0 && expiresAt[doc] < nowEpochSeconds)) {
+                    continue;
+                }
+                if (matches(ParsedUrl.of(url), hostKey, pathPrefix)) {
+                    hits.add(new Hit(codes.get(doc), url));
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        lock.readLock().lock();
+        try {
+            long docBytes = 0;
+            for (int doc = 0; doc < codes.size(); doc++) {
+                if (codes.get(doc) != null) {
+                    // Two strings plus the code-to-doc map entry.
+                    docBytes += 2 * 40 + codes.get(doc).length() + urls.get(doc).length() + 48;
+                }
+            }
+            docBytes += expiresAt.length * 8L + codes.size() * 8L;
+
+            long[] hostStats = new long[3];
+            hosts.stats(hostStats);
+            long hostBytes = hostStats[0] * 96 + hostStats[1] + hostStats[2] * 4;
+
+            long tokenPostings = 0;
+            long tokenBytes = 0;
+            for (Map.Entry<String, IntList> entry : tokens.entrySet()) {
+                tokenPostings += entry.getValue().size;
+                tokenBytes += 40 + 40 + entry.getKey().length() + 16 + entry.getValue().data.length * 4L;
+            }
+
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("links", docsByCode.size());
+            metrics.put("deadDocs", deadDocs);
+            metrics.put("hostNodes", hostStats[0]);
+            metrics.put("tokens", tokens.size());
+            metrics.put("tokenPostings", tokenPostings);
+            metrics.put("docBytes", docBytes);
+            metrics.put("hostTrieBytes", hostBytes);
+            metrics.put("tokenIndexBytes", tokenBytes);
+            metrics.put("estimatedBytes", docBytes + hostBytes + tokenBytes);
+            return metrics;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private IntList intersectTokens(IntList candidates, String pathPrefix) {
+        List<String> prefixTokens = tokenize(pathPrefix);
+        if (prefixTokens.isEmpty()) {
+            return candidates;
+        }
+        // The last token may be cut short ("/camp" for "/campaign") unless a separator follows it.
+        boolean lastComplete = !Character.isLetterOrDigit(pathPrefix.charAt(pathPrefix.length() - 1));
+        for (int i = 0; i < prefixTokens.size(); i++) {
+            String token = prefixTokens.get(i);
+            IntList postings;
+            if (i < prefixTokens.size() - 1 || lastComplete) {
+                postings = tokens.getOrDefault(token, new IntList());
+            } else {
+                postings = unionWithPrefix(token);
+                if (postings == null) {
+                    continue;
+                }
+            }
+            candidates = candidates == null ? postings : candidates.intersect(postings);
+            if (candidates.size == 0) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    private IntList unionWithPrefix(String token) {
+        NavigableMap<String, IntList> range = tokens.subMap(token, true, token + Character.MAX_VALUE, false);
+        if (range.size() > MAX_PREFIX_TOKENS) {
+            return null;
+        }
+        IntList union = new IntList();
+        for (IntList postings : range.values()) {
+            union.addAll(postings);
+        }
+        union.sortDistinct();
+        return union;
+    }
+
+    private static boolean matches(ParsedUrl parsed, String hostKey, String pathPrefix) {
+        if (parsed == null) {
+            return false;
+        }
+        if (hostKey != null) {
+            String reversed = reverse(parsed.host);
+            if (!reversed.equals(hostKey) && !reversed.startsWith(hostKey + ".")) {
+                return false;
+            }
+        }
+        return pathPrefix == null || parsed.rest.regionMatches(true, 0, pathPrefix, 0, pathPrefix.length());
+    }
+
+    private void removeLocked(String shortCode) {
+        Integer doc = docsByCode.remove(shortCode);
+        if (doc == null) {
+            return;
+        }
+        ParsedUrl parsed = ParsedUrl.of(urls.get(doc));
+        if (parsed != null) {
+            HostNode node = hosts.find(reverse(parsed.host));
+            if (node != null) {
+                node.docs.remove(doc);
+            }
+            for (String token : tokenize(parsed.rest)) {
+                IntList postings = tokens.get(token);
+                if (postings != null) {
+                    postings.remove(doc);
+                    if (postings.size == 0) {
+                        tokens.remove(token);
+                    }
+                }
+            }
+        }
+        codes.set(doc, null);
+        urls.set(doc, null);
+        deadDocs++;
+    }
+
+    // Doc ids are never reused, so after heavy churn the index is rebuilt from the live docs.
+    private void compactIfNeeded() {
+        if (deadDocs < MIN_COMPACT_DOCS || deadDocs < docsByCode.size()) {
+            return;
+        }
+        List<String> liveCodes = new ArrayList<>();
+        List<String> liveUrls = new ArrayList<>();
+        List<Long> liveExpiry = new ArrayList<>();
+        for (int doc = 0; doc < codes.size(); doc++) {
+            if (codes.get(doc) != null) {
+                liveCodes.add(codes.get(doc));
+                liveUrls.add(urls.get(doc));
+                liveExpiry.add(expiresAt[doc]);
+            }
+        }
+        docsByCode.clear();
+        codes.clear();
+        urls.clear();
+        expiresAt = new long[Math.max(1024, liveCodes.size())];
+        hosts = new HostNode("");
+        tokens.clear();
+        deadDocs = 0;
+
+        // The write lock is reentrant, so re-adding under it keeps readers out until done.
+        for (int i = 0; i < liveCodes.size(); i++) {
+            add(liveCodes.get(i), liveUrls.get(i), liveExpiry.get(i));
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    private static String reverse(String host) {
+        return new StringBuilder(host).reverse().toString();
+    }
+
+    private static final class ParsedUrl {
+        private final String host;
+        private final String rest;
+
+        private ParsedUrl(String host, String rest) {
+            this.host = host;
+            this.rest = rest;
+        }
+
+        static ParsedUrl of(String url) {
+            try {
+                URI uri = URI.create(url);
+                if (uri.getHost() == null) {
+                    return null;
+                }
+                String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+                String rest = uri.getRawQuery() != null ? path + "?" + uri.getRawQuery() : path;
+                return new ParsedUrl(uri.getHost().toLowerCase(Locale.ROOT), rest);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    // Radix trie node: edge is the label on the way in, children are keyed by the first
+    // character of their edge.
+    private static final class HostNode {
+        private String edge;
+        private final Map<Character, HostNode> children = new HashMap<>(2);
+        private IntList docs = new IntList();
+
+        HostNode(String edge) {
+            this.edge = edge;
+        }
+
+        // Returns the node for key[offset..], creating or splitting nodes as needed.
+        HostNode insert(String key, int offset) {
+            if (offset == key.length()) {
+                return this;
+            }
+            HostNode child = children.get(key.charAt(offset));
+            if (child == null) {
+                child = new HostNode(key.substring(offset));
+                children.put(key.charAt(offset), child);
+                return child;
+            }
+            int common = commonPrefix(child.edge, key, offset);
+            if (common < child.edge.length()) {
+                HostNode split = new HostNode(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                split.children.put(child.edge.charAt(0), child);
+                children.put(split.edge.charAt(0), split);
+                child = split;
+            }
+            return child.insert(key, offset + common);
+        }
+
+        HostNode find(String key) {
+            HostNode node = this;
+            int offset = 0;
+            while (offset < key.length()) {
+                HostNode child = node.children.get(key.charAt(offset));
+                if (child == null || !key.startsWith(child.edge, offset)) {
+                    return null;
+                }
+                offset += child.edge.length();
+                node = child;
+            }
+            return node;
+        }
+
+        // Docs of the host itself plus every host under "key." (its subdomains).
+        IntList collect(String key) {
+            IntList result = new IntList();
+            HostNode exact = find(key);
+            if (exact != null) {
+                result.addAll(exact.docs);
+            }
+            String subdomains = key + ".";
+            HostNode node = this;
+            int offset = 0;
+            while (node != null && offset < subdomains.length()) {
+                HostNode child = node.children.get(subdomains.charAt(offset));
+                if (child == null) {
+                    node = null;
+                    break;
+                }
+                int common = commonPrefix(child.edge, subdomains, offset);
+                if (offset + common == subdomains.length()) {
+                    node = child;
+                    offset = subdomains.length();
+                } else if (common == child.edge.length()) {
+                    node = child;
+                    offset += common;
+                } else {
+                    node = null;
+                }
+            }
+            if (node != null) {
+                node.addSubtree(result);
+            }
+            result.sortDistinct();
+            return result;
+        }
+
+        private void addSubtree(IntList result) {
+            result.addAll(docs);
+            for (HostNode child : children.values()) {
+                child.addSubtree(result);
+            }
+        }
+
+        // [nodes, edge chars, postings capacity]
+        void stats(long[] totals) {
+            totals[0]++;
+            totals[1] += edge.length();
+            totals[2] += docs.data.length;
+            for (HostNode child : children.values()) {
+                child.stats(totals);
+            }
+        }
+
+        private static int commonPrefix(String edge, String key, int offset) {
+            int max = Math.min(edge.length(), key.length() - offset);
+            int i = 0;
+            while (i < max && edge.charAt(i) == key.charAt(offset + i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    // Growable int array kept sorted by its callers.
+    static final class IntList {
+        private int[] data = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int last() {
+            return data[size - 1];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return data[index];
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + other.size));
+            }
+            System.arraycopy(other.data, 0, data, size, other.size);
+            size += other.size;
+        }
+
+        void remove(int value) {
+            int index = Arrays.binarySearch(data, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(data, index + 1, data, index, size - index - 1);
+                size--;
+            }
+        }
+
+        void sortDistinct() {
+            Arrays.sort(data, 0, size);
+            int write = 0;
+            for (int i = 0; i < size; i++) {
+                if (write == 0 || data[write - 1] != data[i]) {
+                    data[write++] = data[i];
+                }
+            }
+            size = write;
+        }
+
+        IntList intersect(IntList other) {
+            IntList result = new IntList();
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (data[i] < other.data[j]) {
+                    i++;
+                } else if (data[i] > other.data[j]) {
+                    j++;
+                } else {
+                    result.add(data[i]);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.urlshortener;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Per-link, per-day HyperLogLog sketches collected in memory and merged into the database
+// periodically. Because merging is idempotent, a failed flush simply folds the drained
+// sketches back into the pending ones.
+public class VisitorTracker {
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final int RETENTION_SWEEP_HOURS = 6;
+
+    interface SketchWriter {
+        void write(List<Pending> sketches) throws SQLException;
+    }
+
+    interface RetentionSweep {
+        int deleteBefore(LocalDate cutoff) throws SQLException;
+    }
+
+    private final SketchWriter writer;
+    private final int maxPending;
+    private final LongSupplier clock;
+    private volatile ConcurrentHashMap<Key, HyperLogLog> pending = new ConcurrentHashMap<>();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder swept = new LongAdder();
+    private ScheduledExecutorService flusher;
+
+    public VisitorTracker(SketchWriter writer, int maxPending) {
+        this(writer, maxPending, System::currentTimeMillis);
+    }
+
+    VisitorTracker(SketchWriter writer, int maxPending, LongSupplier clock) {
+        this.writer = writer;
+        this.maxPending = Math.max(1, maxPending);
+        this.clock = clock;
+    }
+
+    public void start(int flushIntervalSeconds) {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "visitor-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Runs on the flusher thread every few hours; retentionDays below 1 disables it.
+    public void startRetention(RetentionSweep sweep, int retentionDays) {
+        if (retentionDays < 1) {
+            return;
+        }
+        flusher.scheduleWithFixedDelay(() -> sweepExpired(sweep, retentionDays), 1, RETENTION_SWEEP_HOURS * 60L,
+            TimeUnit.MINUTES);
+    }
+
+    void sweepExpired(RetentionSweep sweep, int retentionDays) {
+        LocalDate today = LocalDate.ofEpochDay(Math.floorDiv(clock.getAsLong(), MILLIS_PER_DAY));
+        try {
+            swept.add(sweep.deleteBefore(today.minusDays(retentionDays - 1)));
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Failed to delete old visitor sketches: " + e.getMessage());
+        }
+    }
+
+    public void record(String shortCode, long visitorHash) {
+        Key key = new Key(shortCode, LocalDate.ofEpochDay(Math.floorDiv(clock.getAsLong(), MILLIS_PER_DAY)));
+        ConcurrentHashMap<Key, HyperLogLog> sketches = pending;
+        HyperLogLog sketch = sketches.get(key);
+        if (sketch == null) {
+            if (sketches.size() >= maxPending) {
+                dropped.increment();
+                return;
+            }
+            sketch = sketches.computeIfAbsent(key, k -> new HyperLogLog());
+        }
+        sketch.add(visitorHash);
+        recorded.increment();
+    }
+
+    // Sketches recorded on this node since the last flush, merged over all days.
+    public HyperLogLog pendingFor(String shortCode) {
+        HyperLogLog merged = new HyperLogLog();
+        for (Map.Entry<Key, HyperLogLog> entry : pending.entrySet()) {
+            if (entry.getKey().shortCode.equals(shortCode)) {
+                merged.merge(entry.getValue());
+            }
+        }
+        return merged;
+    }
+
+    // A record racing with the swap can land in the drained map after it was copied; losing
+    // one visitor in a flush interval is within the sketch's error anyway.
+    synchronized void flush() {
+        ConcurrentHashMap<Key, HyperLogLog> drained = pending;
+        if (drained.isEmpty()) {
+            return;
+        }
+        pending = new ConcurrentHashMap<>();
+
+        List<Pending> sketches = new ArrayList<>(drained.size());
+        for (Map.Entry<Key, HyperLogLog> entry : drained.entrySet()) {
+            sketches.add(new Pending(entry.getKey().shortCode, entry.getKey().day, entry.getValue().toBytes()));
+        }
+        try {
+            writer.write(sketches);
+            flushed.add(sketches.size());
+        } catch (SQLException | RuntimeException e) {
+            flushFailures.increment();
+            System.err.println("Failed to flush " + sketches.size() + " visitor sketches: " + e.getMessage());
+            for (Map.Entry<Key, HyperLogLog> entry : drained.entrySet()) {
+                pending.computeIfAbsent(entry.getKey(), k -> new HyperLogLog()).merge(entry.getValue());
+            }
+        }
+    }
+
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("recorded", recorded.sum());
+        metrics.put("pendingSketches", pending.size());
+        metrics.put("droppedFull", dropped.sum());
+        metrics.put("flushedSketches", flushed.sum());
+        metrics.put("flushFailures", flushFailures.sum());
+        metrics.put("sweptSketches", swept.sum());
+        return metrics;
+    }
+
+    public static final class Pending {
+        private final String shortCode;
+        private final LocalDate day;
+        private final byte[] sketch;
+
+        Pending(String shortCode, LocalDate day, byte[] sketch) {
+            this.shortCode = shortCode;
+            this.day = day;
+            this.sketch = sketch;
+        }
+
+        public String getShortCode() {
+            return shortCode;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public byte[] getSketch() {
+            return sketch;
+        }
+    }
+
+    private static final class Key {
+        private final String shortCode;
+        private final LocalDate day;
+
+        Key(String shortCode, LocalDate day) {
+            this.shortCode = shortCode;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return shortCode.equals(other.shortCode) && day.equals(other.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shortCode, day);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.urlshortener;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Draws ranks in [0, n) with probability proportional to 1 / (rank + 1)^exponent, so rank 0
+// is the hottest. The CDF is precomputed; each draw is a binary search.
+public class ZipfSampler {
+    private final double[] cdf;
+
+    public ZipfSampler(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        cdf = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += 1.0 / Math.pow(i + 1, exponent);
+            cdf[i] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= total;
+        }
+    }
+
+    public int next(Random random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        // Not found: insertion point, i.e. the first rank whose CDF exceeds the draw.
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+}
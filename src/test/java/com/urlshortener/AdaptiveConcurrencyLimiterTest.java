@@ -0,0 +1,121 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    void testRejectsAtLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 100, 0.5, 0.0);
+        assertTrue(limiter.tryAcquire(true));
+        assertTrue(limiter.tryAcquire(true));
+        assertFalse(limiter.tryAcquire(true));
+
+        limiter.release();
+        assertTrue(limiter.tryAcquire(true));
+    }
+
+    @Test
+    void testPriorityReserve() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 10, 100, 0.5, 0.2);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(limiter.tryAcquire(false));
+        }
+        assertFalse(limiter.tryAcquire(false));
+        assertTrue(limiter.tryAcquire(true));
+        assertTrue(limiter.tryAcquire(true));
+        assertFalse(limiter.tryAcquire(true));
+        assertEquals(1L, limiter.getMetrics().get("rejectedStandard"));
+        assertEquals(1L, limiter.getMetrics().get("rejectedPriority"));
+    }
+
+    @Test
+    void testSlowCallsShrinkLimitOncePerInterval() {
+        AtomicLong now = new AtomicLong(0);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 100, 100, 0.5, 0.0, now::get);
+        assertTrue(limiter.tryAcquire(true));
+
+        limiter.onDatabaseCall(SLOW, false);
+        limiter.onDatabaseCall(SLOW, false);
+        assertEquals(10, limiter.getLimit());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        limiter.onDatabaseCall(0, true);
+        assertEquals(5, limiter.getLimit());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        limiter.onDatabaseCall(SLOW, false);
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void testFastCallsGrowLimitOncePerWindowOnlyUnderLoad() {
+        AtomicLong now = new AtomicLong(0);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 6, 100, 0.5, 0.0, now::get);
+        assertTrue(limiter.tryAcquire(true));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        limiter.onDatabaseCall(FAST, false);
+        assertEquals(4, limiter.getLimit());
+
+        assertTrue(limiter.tryAcquire(true));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        for (int i = 0; i < 50; i++) {
+            limiter.onDatabaseCall(FAST, false);
+        }
+        assertEquals(5, limiter.getLimit());
+
+        // Two in flight no longer uses half of 5.
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        limiter.onDatabaseCall(FAST, false);
+        assertEquals(5, limiter.getLimit());
+
+        assertTrue(limiter.tryAcquire(true));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        limiter.onDatabaseCall(FAST, false);
+        assertEquals(6, limiter.getLimit());
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        limiter.onDatabaseCall(FAST, false);
+        assertEquals(6, limiter.getLimit());
+    }
+
+    @Test
+    void testNoGrowthInWindowWithBackoff() {
+        AtomicLong now = new AtomicLong(0);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 100, 0.5, 0.0, now::get);
+        limiter.tryAcquire(true);
+        limiter.tryAcquire(true);
+
+        limiter.onDatabaseCall(SLOW, false);
+        assertEquals(2, limiter.getLimit());
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        limiter.onDatabaseCall(FAST, false);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void testCallsOutsideAdmittedRequestsIgnored() throws InterruptedException {
+        AtomicLong now = new AtomicLong(0);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 100, 100, 0.5, 0.0, now::get);
+        limiter.onDatabaseCall(SLOW, false);
+        assertEquals(20, limiter.getLimit());
+
+        assertTrue(limiter.tryAcquire(true));
+        Thread background = new Thread(() -> limiter.onDatabaseCall(SLOW, false));
+        background.start();
+        background.join();
+        assertEquals(20, limiter.getLimit());
+
+        limiter.release();
+        limiter.onDatabaseCall(SLOW, false);
+        assertEquals(20, limiter.getLimit());
+    }
+}
@@ -0,0 +1,98 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickBreakdownsTest {
+
+    private static Map<String, Long> countsFor(List<ClickBreakdowns.Count> counts, String shortCode,
+            ClickDimensions.Dimension dimension) {
+        Map<String, Long> result = new HashMap<>();
+        for (ClickBreakdowns.Count count : counts) {
+            if (count.getShortCode().equals(shortCode) && count.getDimension() == dimension) {
+                result.merge(count.getValue(), count.getClicks(), Long::sum);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void testCountsPerDimensionValue() {
+        List<ClickBreakdowns.Count> written = new ArrayList<>();
+        ClickBreakdowns breakdowns = new ClickBreakdowns(written::addAll, 10, 100, () -> 0L);
+
+        breakdowns.record("abc", new ClickDimensions("google.com", "Chrome", "DE"));
+        breakdowns.record("abc", new ClickDimensions("google.com", "Firefox", "DE"));
+        breakdowns.record("abc", new ClickDimensions("(none)", "Chrome", "US"));
+        breakdowns.flush();
+
+        assertEquals(Map.of("google.com", 2L, "(none)", 1L),
+            countsFor(written, "abc", ClickDimensions.Dimension.REFERRER));
+        assertEquals(Map.of("Chrome", 2L, "Firefox", 1L), countsFor(written, "abc", ClickDimensions.Dimension.AGENT));
+        assertEquals(Map.of("DE", 2L, "US", 1L), countsFor(written, "abc", ClickDimensions.Dimension.COUNTRY));
+    }
+
+    @Test
+    void testLongTailFoldedIntoOther() {
+        List<ClickBreakdowns.Count> written = new ArrayList<>();
+        ClickBreakdowns breakdowns = new ClickBreakdowns(written::addAll, 2, 100, () -> 0L);
+
+        for (int i = 0; i < 5; i++) {
+            breakdowns.record("abc", new ClickDimensions("big.example", "Chrome", "DE"));
+        }
+        for (int i = 0; i < 3; i++) {
+            breakdowns.record("abc", new ClickDimensions("mid.example", "Chrome", "DE"));
+        }
+        for (int i = 0; i < 10; i++) {
+            breakdowns.record("abc", new ClickDimensions("tail" + i + ".example", "Chrome", "DE"));
+        }
+        breakdowns.flush();
+
+        Map<String, Long> referrers = countsFor(written, "abc", ClickDimensions.Dimension.REFERRER);
+        assertEquals(3, referrers.size());
+        assertEquals(5L, referrers.get("big.example"));
+        assertEquals(3L, referrers.get("mid.example"));
+        assertEquals(10L, referrers.get(ClickBreakdowns.OTHER));
+    }
+
+    @Test
+    void testHoursKeptApart() {
+        List<ClickBreakdowns.Count> written = new ArrayList<>();
+        long[] now = {0};
+        ClickBreakdowns breakdowns = new ClickBreakdowns(written::addAll, 10, 100, () -> now[0]);
+
+        breakdowns.record("abc", new ClickDimensions("a.example", "Chrome", "DE"));
+        now[0] = 3_600_000;
+        breakdowns.record("abc", new ClickDimensions("a.example", "Chrome", "DE"));
+        breakdowns.flush();
+
+        assertEquals(6, written.size());
+        assertEquals(2, written.stream().map(ClickBreakdowns.Count::getHour).distinct().count());
+    }
+
+    @Test
+    void testClassifiers() {
+        assertEquals("news.example", ClickDimensions.referrerHost("https://www.News.example/a?b=c"));
+        assertEquals(ClickDimensions.NONE, ClickDimensions.referrerHost(null));
+        assertEquals(ClickDimensions.UNKNOWN, ClickDimensions.referrerHost("not a url"));
+
+        assertEquals("Chrome", ClickDimensions.agentFamily(
+            "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36"));
+        assertEquals("Edge", ClickDimensions.agentFamily(
+            "Mozilla/5.0 AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36 Edg/120.0"));
+        assertEquals("Safari", ClickDimensions.agentFamily(
+            "Mozilla/5.0 (Macintosh) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.0 Safari/605.1.15"));
+        assertEquals("Bot", ClickDimensions.agentFamily("Googlebot/2.1 (+http://www.google.com/bot.html)"));
+        assertEquals("Tool", ClickDimensions.agentFamily("curl/8.4.0"));
+
+        assertEquals("DE", ClickDimensions.countryCode(" de "));
+        assertEquals(ClickDimensions.UNKNOWN, ClickDimensions.countryCode("T1"));
+        assertEquals(ClickDimensions.UNKNOWN, ClickDimensions.countryCode(null));
+    }
+}
@@ -0,0 +1,61 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactRedirectTest {
+
+    @Test
+    void testRoundTripSharesPrefix() {
+        PrefixDictionary dictionary = new PrefixDictionary(16);
+        CompactRedirect a = CompactRedirect.of("abc", new URLEntry("abc", "https://example.com/a?x=1"), dictionary);
+        CompactRedirect b = CompactRedirect.of("def", new URLEntry("def", "https://example.com/b#frag"), dictionary);
+
+        assertEquals("https://example.com/a?x=1", a.getOriginalUrl(dictionary));
+        assertEquals("https://example.com/b#frag", b.getOriginalUrl(dictionary));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    void testFullDictionaryKeepsWholeUrl() {
+        PrefixDictionary dictionary = new PrefixDictionary(1);
+        CompactRedirect.of("a", new URLEntry("a", "https://one.example/x"), dictionary);
+        CompactRedirect b = CompactRedirect.of("b", new URLEntry("b", "https://two.example/y"), dictionary);
+
+        assertEquals("https://two.example/y", b.getOriginalUrl(dictionary));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    void testHostOnlyAndNonAsciiUrls() {
+        PrefixDictionary dictionary = new PrefixDictionary(16);
+        assertEquals("https://example.com",
+            CompactRedirect.of("a", new URLEntry("a", "https://example.com"), dictionary).getOriginalUrl(dictionary));
+        assertEquals("https://example.com/café",
+            CompactRedirect.of("b", new URLEntry("b", "https://example.com/café"), dictionary).getOriginalUrl(dictionary));
+    }
+
+    @Test
+    void testExpiry() {
+        PrefixDictionary dictionary = new PrefixDictionary(16);
+        CompactRedirect expired = CompactRedirect.of("a",
+            new URLEntry("a", "https://example.com", System.currentTimeMillis() - Duration.ofMinutes(1).toMillis()), dictionary);
+        CompactRedirect live = CompactRedirect.of("b",
+            new URLEntry("b", "https://example.com", System.currentTimeMillis() + Duration.ofMinutes(1).toMillis()), dictionary);
+
+        assertTrue(expired.isExpired());
+        assertFalse(live.isExpired());
+        assertFalse(CompactRedirect.of("c", new URLEntry("c", "https://example.com"), dictionary).isExpired());
+    }
+
+    @Test
+    void testAliasKeyKeepsShortCode() {
+        PrefixDictionary dictionary = new PrefixDictionary(16);
+        URLEntry entry = new URLEntry("abc123", "https://example.com", "my-alias");
+        assertEquals("abc123", CompactRedirect.of("my-alias", entry, dictionary).getShortCode("my-alias"));
+        assertEquals("abc123", CompactRedirect.of("abc123", entry, dictionary).getShortCode("abc123"));
+    }
+}
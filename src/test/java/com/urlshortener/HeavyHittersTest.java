@@ -0,0 +1,114 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHittersTest {
+
+    private static void hit(HeavyHitters hitters, String code, int times) {
+        for (int i = 0; i < times; i++) {
+            hitters.record(code);
+        }
+    }
+
+    @Test
+    void testRankingPublishedOnRotation() {
+        HeavyHitters hitters = new HeavyHitters(10, 1000);
+        hit(hitters, "hot", 50);
+        hit(hitters, "warm", 20);
+        hit(hitters, "cold", 1);
+
+        assertTrue(hitters.top(HeavyHitters.Window.MINUTE, 10).isEmpty());
+        hitters.rotate();
+
+        List<HeavyHitters.Item> top = hitters.top(HeavyHitters.Window.MINUTE, 2);
+        assertEquals(2, top.size());
+        assertEquals("hot", top.get(0).getShortCode());
+        assertEquals(50, top.get(0).getCount());
+        assertEquals(0, top.get(0).getError());
+        assertEquals("warm", top.get(1).getShortCode());
+    }
+
+    @Test
+    void testMinuteWindowSlidesOut() {
+        HeavyHitters hitters = new HeavyHitters(10, 1000);
+        hit(hitters, "old", 30);
+        hitters.rotate();
+        for (int i = 0; i < 6; i++) {
+            hit(hitters, "new", 1);
+            hitters.rotate();
+        }
+
+        List<HeavyHitters.Item> minute = hitters.top(HeavyHitters.Window.MINUTE, 10);
+        assertEquals(1, minute.size());
+        assertEquals("new", minute.get(0).getShortCode());
+        assertEquals(6, minute.get(0).getCount());
+
+        // The hour and day windows still include the first slice.
+        assertEquals("old", hitters.top(HeavyHitters.Window.HOUR, 1).get(0).getShortCode());
+        assertEquals(30, hitters.top(HeavyHitters.Window.DAY, 1).get(0).getCount());
+    }
+
+    @Test
+    void testCountsAcrossSlicesAreSummed() {
+        HeavyHitters hitters = new HeavyHitters(10, 1000);
+        for (int i = 0; i < 12; i++) {
+            hit(hitters, "steady", 5);
+            hitters.rotate();
+        }
+
+        HeavyHitters.Item hour = hitters.top(HeavyHitters.Window.HOUR, 1).get(0);
+        assertEquals(60, hour.getCount());
+        assertEquals(0, hour.getError());
+        assertEquals(30, hitters.top(HeavyHitters.Window.MINUTE, 1).get(0).getCount());
+    }
+
+    @Test
+    void testTruncatedSummariesBoundTheError() {
+        HeavyHitters hitters = new HeavyHitters(2, 1000);
+        hit(hitters, "a", 10);
+        hit(hitters, "b", 8);
+        hit(hitters, "c", 3);
+        hitters.rotate();
+        hit(hitters, "c", 10);
+        hit(hitters, "d", 9);
+        hit(hitters, "a", 1);
+        hitters.rotate();
+
+        for (HeavyHitters.Item item : hitters.top(HeavyHitters.Window.MINUTE, 2)) {
+            long actual = switch (item.getShortCode()) {
+                case "a" -> 11;
+                case "b" -> 8;
+                case "c" -> 13;
+                default -> 9;
+            };
+            assertTrue(item.getCount() >= actual, item.getShortCode());
+            assertTrue(item.getCount() - item.getError() <= actual, item.getShortCode());
+        }
+    }
+
+    @Test
+    void testNewKeysBeyondSliceLimitAreNotTracked() {
+        HeavyHitters hitters = new HeavyHitters(10, 2);
+        hit(hitters, "a", 3);
+        hit(hitters, "b", 2);
+        hit(hitters, "c", 5);
+        hit(hitters, "a", 1);
+        hitters.rotate();
+
+        List<HeavyHitters.Item> top = hitters.top(HeavyHitters.Window.MINUTE, 10);
+        assertEquals(2, top.size());
+        assertEquals(4, top.get(0).getCount());
+        assertEquals(5L, hitters.getMetrics().get("untracked"));
+    }
+
+    @Test
+    void testParseWindow() {
+        assertEquals(HeavyHitters.Window.MINUTE, HeavyHitters.Window.parse("1m"));
+        assertEquals(HeavyHitters.Window.DAY, HeavyHitters.Window.parse("24h"));
+        assertNull(HeavyHitters.Window.parse("2h"));
+    }
+}
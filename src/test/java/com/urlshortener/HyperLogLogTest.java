@@ -0,0 +1,67 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    private static HyperLogLog sketchOf(String prefix, int from, int to) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = from; i < to; i++) {
+            sketch.add(HyperLogLog.hash(prefix + i));
+        }
+        return sketch;
+    }
+
+    @Test
+    void testEmptySketchEstimatesZero() {
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    void testSmallCardinalityIsNearlyExact() {
+        long estimate = sketchOf("10.0.0.", 0, 50).estimate();
+        assertTrue(Math.abs(estimate - 50) <= 2, "estimate " + estimate);
+    }
+
+    @Test
+    void testLargeCardinalityWithinErrorBound() {
+        long estimate = sketchOf("visitor-", 0, 100000).estimate();
+        assertTrue(Math.abs(estimate - 100000) < 10000, "estimate " + estimate);
+    }
+
+    @Test
+    void testRepeatedVisitorsCountOnce() {
+        HyperLogLog sketch = sketchOf("v", 0, 200);
+        long before = sketch.estimate();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 200; i++) {
+                sketch.add(HyperLogLog.hash("v" + i));
+            }
+        }
+        assertEquals(before, sketch.estimate());
+    }
+
+    @Test
+    void testMergeIsUnionAndIdempotent() {
+        HyperLogLog a = sketchOf("v", 0, 3000);
+        HyperLogLog b = sketchOf("v", 2000, 5000);
+        HyperLogLog union = sketchOf("v", 0, 5000);
+
+        a.merge(b);
+        assertArrayEquals(union.toBytes(), a.toBytes());
+        a.merge(b);
+        assertArrayEquals(union.toBytes(), a.toBytes());
+    }
+
+    @Test
+    void testBytesRoundTrip() {
+        HyperLogLog sketch = sketchOf("v", 0, 1000);
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(1024, bytes.length);
+        assertEquals(sketch.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[16]));
+    }
+}
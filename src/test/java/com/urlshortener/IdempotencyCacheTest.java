@@ -0,0 +1,168 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+    @Test
+    void testRetryReplaysOriginalResponse() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(100, 60);
+        AtomicInteger runs = new AtomicInteger();
+        IdempotencyCache.Action action = () -> new IdempotencyCache.Response(200, "run-" + runs.incrementAndGet());
+
+        IdempotencyCache.Outcome first = cache.execute("key", "body", 1000, action);
+        IdempotencyCache.Outcome second = cache.execute("key", "body", 1000, action);
+
+        assertFalse(first.isReplayed());
+        assertTrue(second.isReplayed());
+        assertEquals("run-1", second.getResponse().getBody());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testDifferentRequestWithSameKeyIsRejected() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(100, 60);
+        cache.execute("key", "body-a", 1000, () -> new IdempotencyCache.Response(200, "a"));
+
+        assertThrows(IdempotencyCache.KeyReuseException.class,
+            () -> cache.execute("key", "body-b", 1000, () -> new IdempotencyCache.Response(200, "b")));
+    }
+
+    @Test
+    void testUnrememberedOutcomeFreesKey() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(100, 60);
+        cache.execute("key", "body", 1000, () -> null);
+
+        IdempotencyCache.Outcome retry = cache.execute("key", "body", 1000,
+            () -> new IdempotencyCache.Response(200, "ok"));
+        assertFalse(retry.isReplayed());
+        assertEquals("ok", retry.getResponse().getBody());
+    }
+
+    @Test
+    void testExpiredKeyRunsAgain() throws Exception {
+        AtomicLong now = new AtomicLong();
+        IdempotencyCache cache = new IdempotencyCache(100, 60, now::get);
+        cache.execute("key", "body-a", 1000, () -> new IdempotencyCache.Response(200, "a"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        IdempotencyCache.Outcome outcome = cache.execute("key", "body-b", 1000,
+            () -> new IdempotencyCache.Response(200, "b"));
+        assertFalse(outcome.isReplayed());
+        assertEquals("b", outcome.getResponse().getBody());
+    }
+
+    @Test
+    void testConcurrentRetryWaitsForOriginal() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(100, 60);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<IdempotencyCache.Outcome> original = executor.submit(() -> cache.execute("key", "body", 1000, () -> {
+                started.countDown();
+                release.await();
+                return new IdempotencyCache.Response(200, "original");
+            }));
+            started.await();
+
+            Thread releaser = new Thread(() -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignored) {
+                }
+                release.countDown();
+            });
+            releaser.start();
+
+            IdempotencyCache.Outcome retry = cache.execute("key", "body", 5000,
+                () -> new IdempotencyCache.Response(200, "duplicate"));
+            assertTrue(retry.isReplayed());
+            assertEquals("original", retry.getResponse().getBody());
+            assertEquals("original", original.get().getResponse().getBody());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRetryWhileOriginalStillRunningIsRejected() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(100, 60);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<IdempotencyCache.Outcome> original = executor.submit(() -> cache.execute("key", "body", 1000, () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                release.await();
+                return new IdempotencyCache.Response(200, "original");
+            }));
+            started.await();
+
+            assertThrows(IdempotencyCache.InProgressException.class, () -> cache.execute("key", "body", 20, () -> {
+                runs.incrementAndGet();
+                return new IdempotencyCache.Response(200, "duplicate");
+            }));
+            release.countDown();
+            assertEquals("original", original.get().getResponse().getBody());
+            assertEquals(1, runs.get());
+            assertEquals(1L, cache.getMetrics().get("inProgress"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRetriesAfterFailedOriginalRunOnce() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(100, 60);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            executor.submit(() -> cache.execute("key", "body", 1000, () -> {
+                started.countDown();
+                release.await();
+                return null;
+            }));
+            started.await();
+
+            IdempotencyCache.Action retry = () -> {
+                Thread.sleep(50);
+                return new IdempotencyCache.Response(200, "retry-" + runs.incrementAndGet());
+            };
+            Future<IdempotencyCache.Outcome> first = executor.submit(() -> cache.execute("key", "body", 5000, retry));
+            Future<IdempotencyCache.Outcome> second = executor.submit(() -> cache.execute("key", "body", 5000, retry));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals("retry-1", first.get().getResponse().getBody());
+            assertEquals("retry-1", second.get().getResponse().getBody());
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFullCacheEvictsFinishedKeys() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(10, 60);
+        for (int i = 0; i < 100; i++) {
+            cache.execute("key-" + i, "body", 1000, () -> new IdempotencyCache.Response(200, "ok"));
+        }
+
+        assertTrue((Integer) cache.getMetrics().get("keys") <= 11);
+    }
+}
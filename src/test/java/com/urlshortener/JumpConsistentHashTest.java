@@ -0,0 +1,61 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JumpConsistentHashTest {
+
+    @Test
+    void testSingleBucket() {
+        for (long key = 0; key < 1000; key++) {
+            assertEquals(0, JumpConsistentHash.bucket(key, 1));
+        }
+    }
+
+    @Test
+    void testBucketsInRange() {
+        for (int i = 0; i < 10000; i++) {
+            int bucket = JumpConsistentHash.bucket("code" + i, 7);
+            assertTrue(bucket >= 0 && bucket < 7);
+        }
+    }
+
+    @Test
+    void testStablePlacement() {
+        assertEquals(JumpConsistentHash.hash("abc123"), JumpConsistentHash.hash("abc123"));
+        assertNotEquals(JumpConsistentHash.hash("abc123"), JumpConsistentHash.hash("abc124"));
+        assertEquals(JumpConsistentHash.bucket("abc123", 16), JumpConsistentHash.bucket("abc123", 16));
+    }
+
+    @Test
+    void testGrowingOnlyMovesKeysToNewBucket() {
+        int moved = 0;
+        for (int i = 0; i < 10000; i++) {
+            String key = "code" + i;
+            int before = JumpConsistentHash.bucket(key, 4);
+            int after = JumpConsistentHash.bucket(key, 5);
+            if (before != after) {
+                assertEquals(4, after);
+                moved++;
+            }
+        }
+        assertTrue(moved > 1500 && moved < 2500, "Expected roughly a fifth of keys to move, got " + moved);
+    }
+
+    @Test
+    void testEvenDistribution() {
+        int[] counts = new int[4];
+        for (int i = 0; i < 40000; i++) {
+            counts[JumpConsistentHash.bucket("code" + i, 4)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 9000 && count < 11000, "Unbalanced bucket: " + count);
+        }
+    }
+
+    @Test
+    void testInvalidBucketCount() {
+        assertThrows(IllegalArgumentException.class, () -> JumpConsistentHash.bucket(1L, 0));
+    }
+}
@@ -0,0 +1,55 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.percentile(50));
+        assertEquals(99, histogram.percentile(99));
+        assertEquals(100, histogram.percentile(100));
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    void testRelativeErrorBounded() {
+        for (long value = 128; value < 1L << 40; value = value * 3 + 7) {
+            long reported = LatencyHistogram.highestEquivalent(LatencyHistogram.index(value));
+            assertTrue(reported >= value, "bucket bound below " + value);
+            assertTrue(reported - value <= value / 64, "bucket too wide at " + value);
+        }
+    }
+
+    @Test
+    void testTailPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 9_990; i++) {
+            histogram.record(1_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(2_000_000);
+        }
+        assertEquals(1_000, histogram.percentile(50), 1_000 / 64);
+        assertEquals(1_000, histogram.percentile(99.9), 1_000 / 64);
+        assertEquals(2_000_000, histogram.percentile(99.95), 2_000_000 / 64);
+        assertEquals(2_000_000, histogram.getMax());
+    }
+
+    @Test
+    void testExtremesFitAndEmptyIsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+        assertEquals(0, histogram.percentile(50));
+    }
+}
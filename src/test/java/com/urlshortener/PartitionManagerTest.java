@@ -0,0 +1,42 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionManagerTest {
+
+    @Test
+    void testDailyRangesStartOnTheDay() {
+        PartitionManager manager = new PartitionManager(1, 7);
+        LocalDate day = LocalDate.of(2024, 3, 15);
+
+        assertEquals(day, manager.rangeStart(day));
+        assertEquals("urls_p20240315_20240316", manager.partitionName(day));
+    }
+
+    @Test
+    void testWiderRangesAlignToEpochMultiples() {
+        PartitionManager manager = new PartitionManager(7, 14);
+        LocalDate start = manager.rangeStart(LocalDate.of(2024, 3, 15));
+
+        assertEquals(0, start.toEpochDay() % 7);
+        assertFalse(start.isAfter(LocalDate.of(2024, 3, 15)));
+        assertTrue(start.plusDays(7).isAfter(LocalDate.of(2024, 3, 15)));
+        for (int i = 0; i < 7; i++) {
+            assertEquals(start, manager.rangeStart(start.plusDays(i)));
+        }
+    }
+
+    @Test
+    void testRangeEndParsedFromName() {
+        PartitionManager manager = new PartitionManager(3, 7);
+        LocalDate start = manager.rangeStart(LocalDate.of(2024, 12, 30));
+
+        assertEquals(start.plusDays(3), PartitionManager.rangeEnd(manager.partitionName(start)));
+        assertNull(PartitionManager.rangeEnd("urls_permanent"));
+        assertNull(PartitionManager.rangeEnd("urls_pbad_name"));
+    }
+}
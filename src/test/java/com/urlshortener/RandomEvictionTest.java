@@ -0,0 +1,55 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomEvictionTest {
+
+    @Test
+    void testEvictsExactlyTheRequestedCount() {
+        ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        List<Integer> evicted = new ArrayList<>();
+
+        RandomEviction.evict(map, 50, (key, value) -> evicted.add(key));
+
+        assertEquals(50, evicted.size());
+        assertEquals(950, map.size());
+        for (Integer key : evicted) {
+            assertFalse(map.containsKey(key));
+        }
+    }
+
+    @Test
+    void testEvictsAcrossTheWholeIterationOrder() {
+        ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        List<Integer> order = new ArrayList<>(map.keySet());
+        List<Integer> evicted = new ArrayList<>();
+
+        RandomEviction.evict(map, 50, (key, value) -> evicted.add(key));
+
+        // Evicting the first 50 in iteration order would never reach the second half.
+        assertTrue(evicted.stream().mapToInt(order::indexOf).max().orElse(0) >= order.size() / 2);
+    }
+
+    @Test
+    void testEmptiesSmallMap() {
+        ConcurrentHashMap<String, String> map = new ConcurrentHashMap<>();
+        map.put("a", "1");
+        map.put("b", "2");
+
+        RandomEviction.evict(map, 5, (key, value) -> { });
+
+        assertTrue(map.isEmpty());
+    }
+}
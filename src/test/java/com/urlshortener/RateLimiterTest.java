@@ -0,0 +1,69 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void testAllowsBurstThenRejects() {
+        AtomicLong now = new AtomicLong(0);
+        RateLimiter limiter = new RateLimiter(1.0, 3, 1000, 60000, now::get);
+
+        assertEquals(0, limiter.tryAcquire("client"));
+        assertEquals(0, limiter.tryAcquire("client"));
+        assertEquals(0, limiter.tryAcquire("client"));
+
+        long wait = limiter.tryAcquire("client");
+        assertTrue(wait > 0);
+        assertTrue(wait <= TimeUnit.SECONDS.toNanos(1));
+        assertEquals(3, limiter.getAllowedCount());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    void testRefillsOverTime() {
+        AtomicLong now = new AtomicLong(0);
+        RateLimiter limiter = new RateLimiter(2.0, 1, 1000, 60000, now::get);
+
+        assertEquals(0, limiter.tryAcquire("client"));
+        assertTrue(limiter.tryAcquire("client") > 0);
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(0, limiter.tryAcquire("client"));
+    }
+
+    @Test
+    void testClientsAreIndependent() {
+        AtomicLong now = new AtomicLong(0);
+        RateLimiter limiter = new RateLimiter(1.0, 1, 1000, 60000, now::get);
+
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+        assertEquals(0, limiter.tryAcquire("b"));
+    }
+
+    @Test
+    void testEvictsIdleClients() {
+        AtomicLong now = new AtomicLong(0);
+        RateLimiter limiter = new RateLimiter(10.0, 5, 1000, 1000, now::get);
+
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        assertEquals(2, limiter.getTrackedClients());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2, limiter.evictIdle());
+        assertEquals(0, limiter.getTrackedClients());
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 1, 10, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(1, 0, 10, 1000));
+    }
+}
@@ -0,0 +1,46 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedirectCacheTest {
+
+    @Test
+    void testInvalidationOnlyBlocksRacingLoadOfSameCode() {
+        RedirectCache cache = new RedirectCache(100, 16);
+        long abcLoad = cache.beginLoad("abc123");
+        long xyzLoad = cache.beginLoad("xyz789");
+
+        cache.invalidate(List.of("abc123"));
+        cache.put("abc123", new URLEntry("abc123", "https://example.com/stale"), abcLoad);
+        cache.put("xyz789", new URLEntry("xyz789", "https://example.com/x"), xyzLoad);
+
+        assertNull(cache.get("abc123"));
+        assertNotNull(cache.get("xyz789"));
+    }
+
+    @Test
+    void testInvalidateAllBlocksEveryRacingLoad() {
+        RedirectCache cache = new RedirectCache(100, 16);
+        long load = cache.beginLoad("xyz789");
+
+        cache.invalidateAll();
+        cache.put("xyz789", new URLEntry("xyz789", "https://example.com/x"), load);
+
+        assertNull(cache.get("xyz789"));
+    }
+
+    @Test
+    void testEvictionKeepsCacheBounded() {
+        RedirectCache cache = new RedirectCache(100, 16);
+        for (int i = 0; i < 1000; i++) {
+            String code = "code" + i;
+            cache.put(code, new URLEntry(code, "https://example.com/" + i), cache.beginLoad(code));
+        }
+
+        assertTrue(cache.size() <= 100);
+    }
+}
@@ -0,0 +1,69 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedirectSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private RedirectCache populatedCache() {
+        RedirectCache cache = new RedirectCache(100, 16);
+        cache.put("abc123", new URLEntry("abc123", "https://example.com/a"), cache.beginLoad("abc123"));
+        cache.put("my-alias", new URLEntry("def456", "https://example.com/b", "my-alias"), cache.beginLoad("my-alias"));
+        cache.put("exp999", new URLEntry("exp999", "https://example.org/x", System.currentTimeMillis() + Duration.ofDays(1).toMillis()),
+            cache.beginLoad("exp999"));
+        cache.put("old000", new URLEntry("old000", "https://example.org/y", System.currentTimeMillis() - Duration.ofDays(1).toMillis()),
+            cache.beginLoad("old000"));
+        return cache;
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Path path = tempDir.resolve("cache.snapshot");
+        assertEquals(3, RedirectSnapshot.write(path, populatedCache()));
+
+        RedirectCache restored = new RedirectCache(100, 16);
+        assertEquals(3, RedirectSnapshot.load(path, restored, 60_000));
+
+        CompactRedirect plain = restored.get("abc123");
+        assertEquals("https://example.com/a", restored.getOriginalUrl(plain));
+        assertFalse(plain.isVerified());
+
+        CompactRedirect aliased = restored.get("my-alias");
+        assertEquals("def456", aliased.getShortCode("my-alias"));
+        assertFalse(restored.get("exp999").isExpired());
+        assertNull(restored.get("old000"));
+    }
+
+    @Test
+    void testCorruptSnapshotIsIgnored() throws IOException {
+        Path path = tempDir.resolve("cache.snapshot");
+        RedirectSnapshot.write(path, populatedCache());
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x5a;
+        Files.write(path, bytes);
+
+        RedirectCache restored = new RedirectCache(100, 16);
+        assertEquals(-1, RedirectSnapshot.load(path, restored, 60_000));
+        assertEquals(0, restored.size());
+    }
+
+    @Test
+    void testStaleOrMissingSnapshotIsIgnored() throws IOException {
+        Path path = tempDir.resolve("cache.snapshot");
+        assertEquals(-1, RedirectSnapshot.load(path, new RedirectCache(100, 16), 60_000));
+
+        RedirectSnapshot.write(path, populatedCache());
+        assertEquals(-1, RedirectSnapshot.load(path, new RedirectCache(100, 16), -1));
+    }
+}
@@ -0,0 +1,74 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfEnvironmentVariable(named = TestDatabase.URL_ENV, matches = ".+")
+class ResharderTest {
+
+    @Test
+    void testMovesPartitionedRowsWithTheirCodeClaims() throws Exception {
+        String shardUrls = TestDatabase.createShards("reshard_partitioned", 2);
+        String permanent = TestDatabase.codeOnShard("perm", 1, 2);
+        String expiring = TestDatabase.codeOnShard("exp", 1, 2);
+        String staying = TestDatabase.codeOnShard("stay", 0, 2);
+        long expiresAt = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(2);
+
+        URLDatabase before = new URLDatabase(TestDatabase.config(shardUrls,
+            "db.schema.partitioned", "true", "db.shard.count", "1"));
+        try {
+            assertTrue(before.saveURL(new URLEntry(permanent, "https://example.com/p"), null).isPresent());
+            assertTrue(before.saveURL(new URLEntry(expiring, "https://example.com/e", expiresAt), null).isPresent());
+            assertTrue(before.saveURL(new URLEntry(staying, "https://example.com/s"), null).isPresent());
+        } finally {
+            before.close();
+        }
+
+        URLDatabase database = new URLDatabase(TestDatabase.config(shardUrls,
+            "db.schema.partitioned", "true", "db.shard.count", "2", "db.shard.previous.count", "1"));
+        try {
+            assertEquals(2, new Resharder(database).run());
+
+            for (String moved : new String[] {permanent, expiring}) {
+                assertEquals(0, TestDatabase.countRows(shardUrls, 0, "urls", moved));
+                assertEquals(0, TestDatabase.countRows(shardUrls, 0, "url_codes", moved));
+                assertEquals(1, TestDatabase.countRows(shardUrls, 1, "urls", moved));
+                assertEquals(1, TestDatabase.countRows(shardUrls, 1, "url_codes", moved));
+            }
+            assertEquals(1, TestDatabase.countRows(shardUrls, 0, "url_codes", staying));
+            assertEquals("https://example.com/e", database.findByShortCode(expiring).orElseThrow().getOriginalUrl());
+
+            assertEquals(0, new Resharder(database).run());
+        } finally {
+            database.close();
+        }
+    }
+
+    @Test
+    void testMovedLinksKeepDeduplicating() throws Exception {
+        String shardUrls = TestDatabase.createShards("reshard_dedup", 2);
+        String code = TestDatabase.codeOnShard("dedup", 1, 2);
+        byte[] urlHash = UrlDeduplicator.hash("https://example.com/shared");
+
+        URLDatabase before = new URLDatabase(TestDatabase.config(shardUrls,
+            "app.dedup.enabled", "true", "db.shard.count", "1"));
+        try {
+            assertTrue(before.saveURL(new URLEntry(code, "https://example.com/shared"), urlHash).isPresent());
+        } finally {
+            before.close();
+        }
+
+        URLDatabase database = new URLDatabase(TestDatabase.config(shardUrls,
+            "app.dedup.enabled", "true", "db.shard.count", "2", "db.shard.previous.count", "1"));
+        try {
+            assertEquals(1, new Resharder(database).run());
+            assertEquals(code, database.findByUrlHash(urlHash).orElseThrow().getShortCode());
+        } finally {
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortCodePoolTest {
+
+    @Test
+    void testServesReservedCodes() throws Exception {
+        Set<String> granted = new HashSet<>();
+        ShortCodePool pool = new ShortCodePool(candidates -> {
+            synchronized (granted) {
+                granted.addAll(candidates);
+            }
+            return candidates;
+        }, 6, 100, 20, 50);
+
+        try {
+            waitForDepth(pool, 100);
+
+            Set<String> served = new HashSet<>();
+            for (int i = 0; i < 50; i++) {
+                String code = pool.poll();
+                assertNotNull(code);
+                assertEquals(6, code.length());
+                assertTrue(served.add(code));
+                synchronized (granted) {
+                    assertTrue(granted.contains(code));
+                }
+            }
+            assertEquals(50L, pool.getMetrics().get("served"));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void testOnlyServesCodesTheReserverGranted() throws Exception {
+        ShortCodePool pool = new ShortCodePool(candidates -> candidates.subList(0, candidates.size() / 2), 6, 40, 10, 20);
+
+        try {
+            waitForDepth(pool, 40);
+            assertTrue((Long) pool.getMetrics().get("rejectedCandidates") >= 40);
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void testReportsStarvationWhenEmpty() {
+        ShortCodePool pool = new ShortCodePool(candidates -> {
+            throw new SQLException("database down");
+        }, 6, 10, 5, 5);
+
+        try {
+            assertNull(pool.poll());
+            pool.recordStarvation(2_000_000);
+            assertEquals(1L, pool.getMetrics().get("starved"));
+            assertEquals(2L, pool.getMetrics().get("starvedMillis"));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void testCloseReturnsUnusedCodes() throws Exception {
+        ShortCodePool pool = new ShortCodePool(ArrayList::new, 6, 30, 10, 30);
+        waitForDepth(pool, 30);
+        pool.poll();
+
+        List<String> unused = pool.close();
+        assertEquals(29, unused.size());
+        assertNull(pool.poll());
+    }
+
+    private static void waitForDepth(ShortCodePool pool, int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Integer) pool.getMetrics().get("depth") < depth) {
+            assertTrue(System.currentTimeMillis() < deadline, "Pool never filled");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(5000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("abc", () -> {
+                    loads.incrementAndGet();
+                    awaitRelease(release);
+                    return "value";
+                })));
+            }
+
+            while (singleFlight.getCoalescedCount() < 7) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(0, singleFlight.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testErrorsPropagateToWaiters() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(5000);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("abc", () -> {
+                awaitRelease(release);
+                throw new SQLException("boom", "08006");
+            }));
+            while (singleFlight.getInFlightCount() == 0) {
+                Thread.sleep(1);
+            }
+            Future<String> waiter = executor.submit(() -> singleFlight.execute("abc", () -> "unused"));
+            while (singleFlight.getCoalescedCount() == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            Exception waiterError = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(SQLException.class, leaderError.getCause());
+            assertInstanceOf(SQLException.class, waiterError.getCause());
+            assertEquals("08006", ((SQLException) waiterError.getCause()).getSQLState());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWaiterTimesOut() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(20);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            executor.submit(() -> singleFlight.execute("abc", () -> {
+                awaitRelease(release);
+                return "late";
+            }));
+            while (singleFlight.getInFlightCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            assertThrows(SQLTimeoutException.class, () -> singleFlight.execute("abc", () -> "unused"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitRelease(CountDownLatch latch) throws SQLException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new SQLException(e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTest {
+    private static final long NOW = SnowflakeIdGenerator.EPOCH_MILLIS + 1_000_000L;
+
+    @Test
+    void testIdsAreUniqueAndIncreasing() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, 100);
+        Set<Long> ids = new HashSet<>();
+        long previous = -1;
+
+        for (int i = 0; i < 100000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void testEncodesTimestampAndNode() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(42, 100, () -> NOW);
+        long id = generator.nextId();
+
+        assertEquals(NOW, SnowflakeIdGenerator.timestampOf(id));
+        assertEquals(42, SnowflakeIdGenerator.nodeOf(id));
+    }
+
+    @Test
+    void testDifferentNodesNeverCollide() {
+        SnowflakeIdGenerator first = new SnowflakeIdGenerator(1, 100, () -> NOW);
+        SnowflakeIdGenerator second = new SnowflakeIdGenerator(2, 100, () -> NOW);
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(ids.add(first.nextId()));
+            assertTrue(ids.add(second.nextId()));
+        }
+    }
+
+    @Test
+    void testWaitsForNextMillisecondWhenSequenceExhausted() {
+        AtomicLong calls = new AtomicLong();
+        // The clock only advances after the whole 4096-id sequence has been used.
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 100,
+            () -> NOW + (calls.incrementAndGet() > 4100 ? 1 : 0));
+
+        long last = 0;
+        for (int i = 0; i < 4097; i++) {
+            last = generator.nextId();
+        }
+
+        assertEquals(NOW + 1, SnowflakeIdGenerator.timestampOf(last));
+        assertEquals(1L, generator.getMetrics().get("sequenceExhausted"));
+    }
+
+    @Test
+    void testToleratesSmallClockSkew() {
+        AtomicLong now = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 100, now::get);
+
+        long before = generator.nextId();
+        now.addAndGet(-50);
+        long after = generator.nextId();
+
+        assertTrue(after > before);
+        assertEquals(1L, generator.getMetrics().get("clockSkewEvents"));
+    }
+
+    @Test
+    void testSkewCountedOncePerWait() {
+        AtomicLong calls = new AtomicLong();
+        AtomicLong now = new AtomicLong(NOW);
+        // Behind by 50ms with the sequence used up, until the clock catches up.
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 100,
+            () -> calls.incrementAndGet() > 4200 ? NOW + 1 : now.get());
+
+        for (int i = 0; i < 4096; i++) {
+            generator.nextId();
+        }
+        now.addAndGet(-50);
+        generator.nextId();
+
+        assertEquals(1L, generator.getMetrics().get("clockSkewEvents"));
+        assertEquals(1L, generator.getMetrics().get("sequenceExhausted"));
+    }
+
+    @Test
+    void testRejectsLargeClockSkew() {
+        AtomicLong now = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 100, now::get);
+
+        generator.nextId();
+        now.addAndGet(-5000);
+
+        assertThrows(IllegalStateException.class, generator::nextId);
+        assertEquals(5000L, generator.getMetrics().get("maxObservedSkewMillis"));
+    }
+
+    @Test
+    void testInvalidNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(1024, 100));
+    }
+}
@@ -0,0 +1,99 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementRegistryTest {
+
+    private final AtomicInteger prepared = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+
+    private Connection fakeConnection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "prepareStatement":
+                        prepared.incrementAndGet();
+                        return fakeStatement();
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private PreparedStatement fakeStatement() {
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        closed.incrementAndGet();
+                        return null;
+                    case "isWrapperFor":
+                        return false;
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    @Test
+    void testRegisteredConnectionPreparesOnce() throws SQLException {
+        Connection connection = fakeConnection();
+        StatementRegistry.register(connection);
+        try {
+            PreparedStatement first = StatementRegistry.execute(connection, "SELECT 1", statement -> statement);
+            PreparedStatement second = StatementRegistry.execute(connection, "SELECT 1", statement -> statement);
+            StatementRegistry.execute(connection, "SELECT 2", statement -> statement);
+
+            assertSame(first, second);
+            assertEquals(2, prepared.get());
+            assertEquals(0, closed.get());
+        } finally {
+            StatementRegistry.unregister(connection);
+        }
+    }
+
+    @Test
+    void testUnregisteredConnectionPreparesEveryTime() throws SQLException {
+        Connection connection = fakeConnection();
+        StatementRegistry.execute(connection, "SELECT 1", statement -> statement);
+        StatementRegistry.execute(connection, "SELECT 1", statement -> statement);
+
+        assertEquals(2, prepared.get());
+        assertEquals(2, closed.get());
+    }
+
+    @Test
+    void testStaleStatementIsPreparedAgain() throws SQLException {
+        Connection connection = fakeConnection();
+        StatementRegistry.register(connection);
+        try {
+            assertThrows(SQLException.class, () -> StatementRegistry.execute(connection, "SELECT 1", statement -> {
+                throw new SQLException("connection reset", "08006");
+            }));
+            StatementRegistry.execute(connection, "SELECT 1", statement -> statement);
+
+            assertEquals(2, prepared.get());
+            assertEquals(1, closed.get());
+
+            assertThrows(SQLException.class, () -> StatementRegistry.execute(connection, "SELECT 1", statement -> {
+                throw new SQLException("duplicate key", "23505");
+            }));
+            StatementRegistry.execute(connection, "SELECT 1", statement -> statement);
+            assertEquals(2, prepared.get());
+        } finally {
+            StatementRegistry.unregister(connection);
+        }
+    }
+}
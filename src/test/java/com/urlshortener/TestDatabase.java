@@ -0,0 +1,70 @@
+package com.urlshortener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+// Database tests run only when TEST_DATABASE_URL names a Postgres database they may write
+// to, with user and password as URL parameters. Each shard is a fresh schema in it.
+final class TestDatabase {
+    static final String URL_ENV = "TEST_DATABASE_URL";
+
+    private TestDatabase() {
+    }
+
+    // Drops and recreates the schemas, and returns their URLs in DB_SHARD_URLS form.
+    static String createShards(String prefix, int shards) throws SQLException {
+        String url = System.getenv(URL_ENV);
+        List<String> urls = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement()) {
+            for (int i = 0; i < shards; i++) {
+                String schema = prefix + "_" + i;
+                stmt.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+                stmt.execute("CREATE SCHEMA " + schema);
+                urls.add(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema);
+            }
+        }
+        return String.join(",", urls);
+    }
+
+    static AppConfig config(String shardUrls, String... settings) {
+        Properties properties = new Properties();
+        properties.setProperty("DB_SHARD_URLS", shardUrls);
+        for (int i = 0; i + 1 < settings.length; i += 2) {
+            properties.setProperty(settings[i], settings[i + 1]);
+        }
+        return new AppConfig(properties);
+    }
+
+    // A code that jump hashing places on the given shard out of shardCount.
+    static String codeOnShard(String prefix, int shard, int shardCount) {
+        for (int i = 0; ; i++) {
+            String code = prefix + i;
+            if (JumpConsistentHash.bucket(code, shardCount) == shard) {
+                return code;
+            }
+        }
+    }
+
+    // Rows matching the code in a table of one shard, looked at directly rather than through
+    // the placement logic under test.
+    static int countRows(String shardUrls, int shard, String table, String shortCode) throws SQLException {
+        String url = shardUrls.split(",")[shard];
+        try (Connection connection = DriverManager.getConnection(url);
+             PreparedStatement pstmt = connection.prepareStatement(
+                 "SELECT count(*) FROM " + table + " WHERE short_code = ?")) {
+            pstmt.setString(1, shortCode);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
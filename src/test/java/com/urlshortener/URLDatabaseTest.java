@@ -0,0 +1,61 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfEnvironmentVariable(named = TestDatabase.URL_ENV, matches = ".+")
+class URLDatabaseTest {
+
+    @Test
+    void testAliasOnPreviousShardIsNotTakenOverDuringReshard() throws Exception {
+        String shardUrls = TestDatabase.createShards("urldb_alias", 2);
+        String alias = TestDatabase.codeOnShard("alias", 1, 2);
+
+        // Created while everything still lived on shard 0.
+        URLDatabase before = new URLDatabase(TestDatabase.config(shardUrls, "db.shard.count", "1"));
+        try {
+            assertTrue(before.saveURL(new URLEntry(alias, "https://example.com/original", alias), null).isPresent());
+        } finally {
+            before.close();
+        }
+
+        URLDatabase database = new URLDatabase(TestDatabase.config(shardUrls,
+            "db.shard.count", "2", "db.shard.previous.count", "1"));
+        try {
+            assertTrue(database.saveURL(new URLEntry(alias, "https://example.com/newcomer", alias), null).isEmpty());
+            assertEquals(0, TestDatabase.countRows(shardUrls, 1, "urls", alias));
+            assertEquals("https://example.com/original", database.findByShortCode(alias).orElseThrow().getOriginalUrl());
+
+            new Resharder(database).run();
+            assertEquals(1, TestDatabase.countRows(shardUrls, 1, "urls", alias));
+            assertEquals("https://example.com/original", database.findByShortCode(alias).orElseThrow().getOriginalUrl());
+        } finally {
+            database.close();
+        }
+    }
+
+    @Test
+    void testExpiryBeyondPrecreatedPartitionsIsRejectedWithoutDdl() throws Exception {
+        String shardUrls = TestDatabase.createShards("urldb_horizon", 1);
+        URLDatabase database = new URLDatabase(TestDatabase.config(shardUrls,
+            "db.schema.partitioned", "true", "db.partition.precreate.days", "7"));
+        try {
+            long soon = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(2);
+            long farAway = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(365);
+
+            assertTrue(database.acceptsExpiry(soon));
+            assertTrue(database.acceptsExpiry(URLEntry.NO_EXPIRY));
+            assertFalse(database.acceptsExpiry(farAway));
+            assertThrows(SQLException.class,
+                () -> database.saveURL(new URLEntry("faraway", "https://example.com/f", farAway), null));
+            assertTrue(database.saveURL(new URLEntry("soon", "https://example.com/s", soon), null).isPresent());
+        } finally {
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class URLEntryTest {
+
+    @Test
+    void testExpiryAgainstGivenClock() {
+        URLEntry entry = new URLEntry("abc123", "https://example.com", 1_000L);
+        assertFalse(entry.isExpired(999L));
+        assertFalse(entry.isExpired(1_000L));
+        assertTrue(entry.isExpired(1_001L));
+
+        URLEntry permanent = new URLEntry("def456", "https://example.com");
+        assertFalse(permanent.hasExpiry());
+        assertFalse(permanent.isExpired(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testWithIdCopies() {
+        URLEntry entry = new URLEntry("abc123", "https://example.com", "my-alias");
+        URLEntry saved = entry.withId(5_000_000_000L);
+
+        assertEquals(0L, entry.getId());
+        assertEquals(5_000_000_000L, saved.getId());
+        assertEquals("my-alias", saved.getCustomAlias());
+        assertEquals(entry.getCreatedAtMillis(), saved.getCreatedAtMillis());
+    }
+
+    @Test
+    void testCoarseClockTracksWallClock() throws InterruptedException {
+        long before = CoarseClock.millis();
+        Thread.sleep(20);
+        long after = CoarseClock.millis();
+
+        assertTrue(after > before);
+        assertTrue(Math.abs(System.currentTimeMillis() - after) < 1_000);
+    }
+}
@@ -59,5 +59,6 @@ class URLValidatorTest {
         assertFalse(URLValidator.isValidAlias("abc def"));
         assertFalse(URLValidator.isValidAlias("abc@def"));
         assertFalse(URLValidator.isValidAlias("abc.def"));
+        assertFalse(URLValidator.isValidAlias("top"));
     }
 }
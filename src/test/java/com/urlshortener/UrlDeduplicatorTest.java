@@ -0,0 +1,52 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlDeduplicatorTest {
+
+    @Test
+    void testHashIgnoresSchemeAndHostCase() {
+        assertArrayEquals(UrlDeduplicator.hash("https://example.com/page"),
+                UrlDeduplicator.hash("HTTPS://Example.COM/page"));
+    }
+
+    @Test
+    void testHashIgnoresDefaultPort() {
+        assertArrayEquals(UrlDeduplicator.hash("https://example.com/page"),
+                UrlDeduplicator.hash("https://example.com:443/page"));
+        assertFalse(java.util.Arrays.equals(UrlDeduplicator.hash("https://example.com/page"),
+                UrlDeduplicator.hash("https://example.com:8443/page")));
+    }
+
+    @Test
+    void testHashKeepsPathCase() {
+        assertFalse(java.util.Arrays.equals(UrlDeduplicator.hash("https://example.com/Page"),
+                UrlDeduplicator.hash("https://example.com/page")));
+        assertEquals(UrlDeduplicator.HASH_LENGTH, UrlDeduplicator.hash("https://example.com").length);
+    }
+
+    @Test
+    void testRememberedEntryIsReturned() {
+        UrlDeduplicator deduplicator = new UrlDeduplicator(10);
+        byte[] hash = UrlDeduplicator.hash("https://example.com/page");
+        assertNull(deduplicator.getRecent(hash));
+
+        URLEntry entry = new URLEntry("abc123", "https://example.com/page");
+        deduplicator.remember(hash, entry);
+        assertSame(entry, deduplicator.getRecent(UrlDeduplicator.hash("https://EXAMPLE.com/page")));
+        assertEquals(1L, deduplicator.getMetrics().get("memoryHits"));
+    }
+
+    @Test
+    void testFullCacheStaysBounded() {
+        UrlDeduplicator deduplicator = new UrlDeduplicator(100);
+        for (int i = 0; i < 1000; i++) {
+            deduplicator.remember(UrlDeduplicator.hash("https://example.com/" + i),
+                new URLEntry("code" + i, "https://example.com/" + i));
+        }
+
+        assertTrue((Integer) deduplicator.getMetrics().get("cached") <= 100);
+    }
+}
@@ -0,0 +1,85 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlListingTest {
+    // 2024-05-01T12:00:00Z
+    private static final long BASE_MICROS = 1_714_564_800_000_000L;
+
+    private static UrlListing.Row row(int shard, long id, long microsAfterBase) {
+        long createdAtMicros = BASE_MICROS + microsAfterBase;
+        URLEntry entry = new URLEntry(id, "c" + shard + "-" + id, "https://example.com/" + id,
+            createdAtMicros / 1000, URLEntry.NO_EXPIRY, 0, null);
+        return new UrlListing.Row(entry, createdAtMicros, shard);
+    }
+
+    private static UrlListing.Row row(int shard, long id, int secondsAfterBase) {
+        return row(shard, id, secondsAfterBase * 1_000_000L);
+    }
+
+    @Test
+    void testMergeOrdersNewestFirstAcrossShards() {
+        List<List<UrlListing.Row>> pages = List.of(
+            List.of(row(0, 3, 30), row(0, 2, 10)),
+            List.of(row(1, 9, 20), row(1, 8, 5)));
+
+        List<UrlListing.Row> merged = UrlListing.merge(pages, 10);
+        List<String> codes = new ArrayList<>();
+        for (UrlListing.Row row : merged) {
+            codes.add(row.getEntry().getShortCode());
+        }
+        assertEquals(List.of("c0-3", "c1-9", "c0-2", "c1-8"), codes);
+    }
+
+    @Test
+    void testMergeReturnsOneExtraRow() {
+        List<List<UrlListing.Row>> pages = List.of(
+            List.of(row(0, 3, 30), row(0, 2, 20), row(0, 1, 10)),
+            List.of(row(1, 3, 25)));
+
+        List<UrlListing.Row> merged = UrlListing.merge(pages, 2);
+        assertEquals(3, merged.size());
+        assertEquals("c0-2", merged.get(2).getEntry().getShortCode());
+    }
+
+    @Test
+    void testTiesBrokenByShard() {
+        List<List<UrlListing.Row>> pages = List.of(List.of(row(0, 7, 0)), List.of(row(1, 7, 0)));
+
+        List<UrlListing.Row> merged = UrlListing.merge(pages, 5);
+        assertEquals(1, merged.get(0).cursor().getShard());
+        assertEquals(0, merged.get(1).cursor().getShard());
+    }
+
+    @Test
+    void testSubMillisecondOrderKept() {
+        List<List<UrlListing.Row>> pages = List.of(List.of(row(0, 1, 400L)), List.of(row(1, 2, 700L)));
+
+        List<UrlListing.Row> merged = UrlListing.merge(pages, 5);
+        assertEquals("c1-2", merged.get(0).getEntry().getShortCode());
+        assertEquals(BASE_MICROS + 700, merged.get(0).cursor().getCreatedAtMicros());
+    }
+
+    @Test
+    void testCursorRoundTrip() {
+        long createdAtMicros = 1_714_566_615_123_456L;
+        UrlListing.Cursor cursor = new UrlListing.Cursor(createdAtMicros, 5_000_000_042L, 3);
+
+        UrlListing.Cursor decoded = UrlListing.Cursor.decode(cursor.encode());
+        assertEquals(createdAtMicros, decoded.getCreatedAtMicros());
+        assertEquals(5_000_000_042L, decoded.getId());
+        assertEquals(3, decoded.getShard());
+        assertFalse(cursor.encode().contains("="));
+    }
+
+    @Test
+    void testInvalidCursorRejected() {
+        assertThrows(IllegalArgumentException.class, () -> UrlListing.Cursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> UrlListing.Cursor.decode("MTIz"));
+    }
+}
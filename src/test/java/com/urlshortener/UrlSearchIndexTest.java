@@ -0,0 +1,108 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlSearchIndexTest {
+    private static final long NOW = 1_700_000_000L;
+
+    private static List<String> codes(List<UrlSearchIndex.Hit> hits) {
+        List<String> result = new ArrayList<>();
+        for (UrlSearchIndex.Hit hit : hits) {
+            result.add(hit.getShortCode());
+        }
+        return result;
+    }
+
+    private static UrlSearchIndex sampleIndex() {
+        UrlSearchIndex index = new UrlSearchIndex();
+        index.add("a1", "https://example.com/campaign-x/landing", 0);
+        index.add("a2", "https://www.example.com/campaign-x?utm=mail", 0);
+        index.add("a3", "https://example.com/campaign-y", 0);
+        index.add("a4", "https://otherexample.com/campaign-x", 0);
+        index.add("a5", "https://shop.example.com/cart", 0);
+        index.add("a6", "https://example.org/campaign-x", 0);
+        return index;
+    }
+
+    @Test
+    void testHostMatchesDomainAndSubdomains() {
+        UrlSearchIndex index = sampleIndex();
+
+        assertEquals(List.of("a1", "a2", "a3", "a5"), codes(index.search("example.com", null, 10, NOW)));
+        assertEquals(List.of("a5"), codes(index.search("shop.example.com", null, 10, NOW)));
+        assertEquals(List.of("a4"), codes(index.search("OtherExample.com", null, 10, NOW)));
+        assertTrue(index.search("ample.com", null, 10, NOW).isEmpty());
+    }
+
+    @Test
+    void testHostAndPathPrefix() {
+        UrlSearchIndex index = sampleIndex();
+
+        assertEquals(List.of("a1", "a2"), codes(index.search("example.com", "/campaign-x", 10, NOW)));
+        assertEquals(List.of("a1", "a2", "a3"), codes(index.search("example.com", "campaign-", 10, NOW)));
+        assertEquals(List.of("a1", "a2", "a3"), codes(index.search("example.com", "/camp", 10, NOW)));
+        assertEquals(List.of("a1"), codes(index.search("example.com", "/campaign-x/", 10, NOW)));
+    }
+
+    @Test
+    void testPrefixWithoutHost() {
+        UrlSearchIndex index = sampleIndex();
+
+        assertEquals(List.of("a1", "a2", "a4", "a6"), codes(index.search(null, "/campaign-x", 10, NOW)));
+        assertEquals(List.of("a1", "a2"), codes(index.search(null, "/campaign-x", 2, NOW)));
+    }
+
+    @Test
+    void testRemoveAndReplace() {
+        UrlSearchIndex index = sampleIndex();
+
+        index.remove("a1");
+        assertEquals(List.of("a2"), codes(index.search("example.com", "/campaign-x", 10, NOW)));
+
+        index.add("a2", "https://example.net/other", 0);
+        assertTrue(index.search("example.com", "/campaign-x", 10, NOW).isEmpty());
+        assertEquals(List.of("a2"), codes(index.search("example.net", null, 10, NOW)));
+        assertFalse(index.contains("a1"));
+    }
+
+    @Test
+    void testExpiredLinksHiddenAndRemovable() {
+        UrlSearchIndex index = new UrlSearchIndex();
+        index.add("old", "https://example.com/a", NOW - 10);
+        index.add("live", "https://example.com/b", NOW + 10);
+
+        assertEquals(List.of("live"), codes(index.search("example.com", null, 10, NOW)));
+        assertTrue(index.isExpired("old", NOW));
+        assertEquals(1, index.removeExpired(NOW));
+        assertFalse(index.contains("old"));
+    }
+
+    @Test
+    void testCompactionKeepsResults() {
+        UrlSearchIndex index = new UrlSearchIndex();
+        for (int i = 0; i < 25000; i++) {
+            index.add("c" + i, "https://example.com/p/" + i, 0);
+        }
+        for (int i = 0; i < 20000; i++) {
+            index.remove("c" + i);
+        }
+
+        Map<String, Object> metrics = index.getMetrics();
+        assertEquals(5000, metrics.get("links"));
+        assertTrue((Integer) metrics.get("deadDocs") < 10000);
+        assertEquals(List.of("c24999"), codes(index.search("example.com", "/p/24999", 10, NOW)));
+        assertTrue((Long) metrics.get("estimatedBytes") > 0);
+    }
+
+    @Test
+    void testTokenize() {
+        assertEquals(List.of("campaign", "x", "utm", "mail"), UrlSearchIndex.tokenize("/Campaign-X?utm=mail"));
+        assertTrue(UrlSearchIndex.tokenize("/").isEmpty());
+    }
+}
@@ -0,0 +1,87 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisitorTrackerTest {
+
+    @Test
+    void testSketchesFlushedPerLinkAndDay() {
+        List<VisitorTracker.Pending> written = new ArrayList<>();
+        AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toMillis(19000) + 1000);
+        VisitorTracker tracker = new VisitorTracker(written::addAll, 100, clock::get);
+
+        tracker.record("abc", HyperLogLog.hash("a"));
+        tracker.record("abc", HyperLogLog.hash("b"));
+        clock.addAndGet(TimeUnit.DAYS.toMillis(1));
+        tracker.record("abc", HyperLogLog.hash("a"));
+        tracker.record("xyz", HyperLogLog.hash("a"));
+
+        assertEquals(2, tracker.pendingFor("abc").estimate());
+        tracker.flush();
+
+        assertEquals(3, written.size());
+        assertTrue(written.stream().anyMatch(p -> p.getShortCode().equals("abc")
+            && p.getDay().equals(LocalDate.ofEpochDay(19001))));
+        assertEquals(0, tracker.pendingFor("abc").estimate());
+    }
+
+    @Test
+    void testFailedFlushKeepsSketches() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        List<VisitorTracker.Pending> written = new ArrayList<>();
+        VisitorTracker tracker = new VisitorTracker(sketches -> {
+            if (failing.get()) {
+                throw new SQLException("down");
+            }
+            written.addAll(sketches);
+        }, 100, () -> 0L);
+
+        tracker.record("abc", HyperLogLog.hash("a"));
+        tracker.flush();
+        tracker.record("abc", HyperLogLog.hash("b"));
+        assertEquals(2, tracker.pendingFor("abc").estimate());
+
+        failing.set(false);
+        tracker.flush();
+        assertEquals(1, written.size());
+        assertEquals(2, HyperLogLog.fromBytes(written.get(0).getSketch()).estimate());
+        assertEquals(1L, tracker.getMetrics().get("flushFailures"));
+    }
+
+    @Test
+    void testNewLinksDroppedWhenFull() {
+        VisitorTracker tracker = new VisitorTracker(sketches -> { }, 1, () -> 0L);
+
+        tracker.record("abc", HyperLogLog.hash("a"));
+        tracker.record("xyz", HyperLogLog.hash("a"));
+        tracker.record("abc", HyperLogLog.hash("b"));
+
+        assertEquals(2, tracker.pendingFor("abc").estimate());
+        assertEquals(0, tracker.pendingFor("xyz").estimate());
+        assertEquals(1L, tracker.getMetrics().get("droppedFull"));
+    }
+
+    @Test
+    void testRetentionSweepKeepsLastDays() {
+        List<LocalDate> cutoffs = new ArrayList<>();
+        VisitorTracker tracker = new VisitorTracker(sketches -> { }, 100, () -> TimeUnit.DAYS.toMillis(10) + 5);
+
+        tracker.sweepExpired(cutoff -> {
+            cutoffs.add(cutoff);
+            return 3;
+        }, 7);
+
+        assertEquals(List.of(LocalDate.ofEpochDay(4)), cutoffs);
+        assertEquals(3L, tracker.getMetrics().get("sweptSketches"));
+    }
+}
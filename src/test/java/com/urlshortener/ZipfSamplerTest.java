@@ -0,0 +1,42 @@
+package com.urlshortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipfSamplerTest {
+
+    @Test
+    void testRankFrequenciesFollowExponent() {
+        ZipfSampler sampler = new ZipfSampler(100, 1.0);
+        Random random = new Random(7);
+        int[] counts = new int[100];
+        for (int i = 0; i < 200_000; i++) {
+            counts[sampler.next(random)]++;
+        }
+        // With exponent 1, rank 0 is drawn twice as often as rank 1 and ten times rank 9.
+        assertEquals(2.0, (double) counts[0] / counts[1], 0.1);
+        assertEquals(10.0, (double) counts[0] / counts[9], 1.0);
+        assertTrue(counts[99] > 0);
+    }
+
+    @Test
+    void testSingleRank() {
+        ZipfSampler sampler = new ZipfSampler(1, 1.2);
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, sampler.next(random));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ZipfSampler(0, 1.0));
+    }
+
+    @Test
+    void testParseMix() {
+        assertEquals(3, LoadTest.parseMix("redirect=90,shorten=5,analytics=5").size());
+        assertEquals(1, LoadTest.parseMix("redirect=1, shorten=0").size());
+        assertThrows(IllegalArgumentException.class, () -> LoadTest.parseMix("browse=5"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTest.parseMix("redirect=0"));
+    }
+}